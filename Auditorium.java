@@ -1,124 +1,225 @@
-
 import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
+//Seats are guarded by one lock per row, so sessions booking different rows
+//never wait on each other. Every grid access happens under its row lock, and
+//the private helpers that touch a row's seats, seat map or free run expect
+//their caller to hold it.
+//Seats can also be held for a short time; expired holds are collected from
+//a timer wheel that is advanced by the auditorium's own operations.
 public class Auditorium {
-    //Reference to the first node (top-left corner) of the auditorium
-    private Node first;
+    //Length of one hold timer wheel tick in milliseconds
+    private static final long HOLD_TICK_MILLIS = 100;
+    //Number of slots in the hold timer wheel (one revolution is about 51 seconds)
+    private static final int HOLD_WHEEL_SLOTS = 512;
+    
+    //Available seat storage backends, selected when the auditorium is constructed
+    public enum Backend {
+        //2D linked list of nodes (the original layout structure)
+        LINKED,
+        //Per-row occupancy bitmaps with a parallel ticket type array
+        BITSET
+    }
+    
+    //Storage for the seats of this auditorium
+    private SeatGrid grid;
     //Total number of rows in the auditorium
     private int numRows;
     //Total number of seats per row
     private int seatsPerRow;
     //Unique identifier for this auditorium
     private int auditoriumNumber;
+    //Longest run of consecutive open seats in each row (index 0 is row 1)
+    private int[] longestFreeRun;
+    //Row numbers ordered from the center row outwards, lower row first on ties
+    private int[] rowsByCenterDistance;
+    //Order holding each seat in row-major order, null for open or unowned seats
+    private Customer.Order[] seatOwners;
+    //Lock guarding the seats of each row (index 0 is row 1)
+    private ReentrantLock[] rowLocks;
+    //Number of reserved seats, kept current by reserveSeat and unreserveSeat
+    private AtomicInteger reservedCount = new AtomicInteger();
+    //Number of reserved seats of each ticket type, indexed by the type character
+    private AtomicIntegerArray ticketTypeCounts = new AtomicIntegerArray(128);
+    //Binary layout updated on every seat change, null when the auditorium is not mapped
+    private MappedSeatStore store;
+    //Seat map exactly as display prints it, patched in place on every seat change
+    private char[] seatMap;
+    //Position in the seat map of seat A of each row (index 0 is row 1)
+    private int[] seatMapRowStarts;
+    //Deadlines of active seat holds
+    private HoldTimerWheel holdWheel = new HoldTimerWheel(HOLD_TICK_MILLIS, HOLD_WHEEL_SLOTS, 
+        System.currentTimeMillis());
     
-    //Constructor loads auditorium layout from file
-    public Auditorium(String filename, int auditoriumNumber) throws FileNotFoundException {
+    //Constructor loads auditorium layout from file using the linked grid
+    public Auditorium(String filename, int auditoriumNumber) throws IOException {
+        this(filename, auditoriumNumber, Backend.LINKED);
+    }
+    
+    //Constructor loads auditorium layout from file using the given backend
+    public Auditorium(String filename, int auditoriumNumber, Backend backend) throws IOException {
         this.auditoriumNumber = auditoriumNumber;
-        loadFromFile(filename);
+        build(readLayout(filename), backend);
     }
     
-    //Reads the auditorium layout from a file and creates the 2D linked list structure
-    private void loadFromFile(String filename) throws FileNotFoundException {
-        Scanner fileScanner = new Scanner(new File(filename));
+    //Constructor builds the auditorium from a mapped binary layout
+    //Every later seat change is written through to the mapped file
+    public Auditorium(MappedSeatStore store, int auditoriumNumber, Backend backend) {
+        this.auditoriumNumber = auditoriumNumber;
+        build(store.readRows(), backend);
+        this.store = store;
+    }
+    
+    //Reads the text rows of a layout file
+    //The whole file is read in one bulk read and split on line breaks directly
+    public static List<String> readLayout(String filename) throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get(filename));
         List<String> lines = new ArrayList<>();
         
-        //Read all lines from the file to get the full layout
-        while (fileScanner.hasNextLine()) {
-            lines.add(fileScanner.nextLine());
+        int lineStart = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n' || data[i] == '\r') {
+                lines.add(new String(data, lineStart, i - lineStart, StandardCharsets.ISO_8859_1));
+                //Treat \r\n as a single line break
+                if (data[i] == '\r' && i + 1 < data.length && data[i + 1] == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
         }
         
-        fileScanner.close();
-        
-        //Set dimensions based on file content
-        numRows = lines.size();
-        if (numRows > 0) {
-            seatsPerRow = lines.get(0).length();
+        //Keep a last line that has no line break
+        if (lineStart < data.length) {
+            lines.add(new String(data, lineStart, data.length - lineStart, StandardCharsets.ISO_8859_1));
+        }
+        return lines;
+    }
+    
+    //Builds the seat grid and indexes from the text rows of a layout
+    private void build(List<String> lines, Backend backend) {
+        //Build the seat storage for the selected backend
+        if (backend == Backend.BITSET) {
+            grid = new BitsetSeatGrid(lines);
+        } else {
+            grid = new LinkedSeatGrid(lines);
         }
         
-        //Build the 2D linked list structure
-        first = null;
-        Node previousRow = null;
+        //Set dimensions based on file content
+        numRows = grid.getNumRows();
+        seatsPerRow = grid.getSeatsPerRow();
         
-        //Process each row from the file
-        for (int i = 0; i < numRows; i++) {
-            String rowData = lines.get(i);
-            Node rowHead = null;
-            Node previousSeat = null;
-            
-            //Process each seat in the row
-            for (int j = 0; j < seatsPerRow; j++) {
-                char seatType = rowData.charAt(j);
-                //Create seat with 1-indexed row and letter-indexed column
-                Seat seat = new Seat(i + 1, (char)('A' + j), seatType != '.');
-                Node newNode = new Node(seat);
-                
-                //Set ticket type if seat is already reserved
-                if (seatType != '.') {
-                    seat.setTicketType(seatType);
-                }
-                
-                //Link seat to previous seat horizontally
-                if (rowHead == null) {
-                    rowHead = newNode;
+        //Build the row locks, free run index and seat counters for every row
+        rowLocks = new ReentrantLock[numRows];
+        longestFreeRun = new int[numRows];
+        seatOwners = new Customer.Order[numRows * seatsPerRow];
+        for (int row = 1; row <= numRows; row++) {
+            rowLocks[row - 1] = new ReentrantLock();
+            refreshFreeRun(row);
+            for (int seat = 0; seat < seatsPerRow; seat++) {
+                if (grid.isReserved(row, seat)) {
+                    countSeat(grid.getTicketType(row, seat), 1);
                 }
-                
-                if (previousSeat != null) {
-                    previousSeat.setRight(newNode);
-                }
-                
-                previousSeat = newNode;
-            }
-            
-            //Set the first node if this is the first row
-            if (first == null) {
-                first = rowHead;
             }
-            
-            //Link row to previous row vertically
-            if (previousRow != null) {
-                Node current = previousRow;
-                Node currentNewRow = rowHead;
-                
-                while (current != null && currentNewRow != null) {
-                    current.setDown(currentNewRow);
-                    current = current.getRight();
-                    currentNewRow = currentNewRow.getRight();
-                }
+        }
+        renderSeatMap();
+        
+        //Order rows by distance from the center row
+        rowsByCenterDistance = new int[numRows];
+        int lower = (numRows + 1) / 2;
+        int upper = lower + 1;
+        for (int i = 0; i < numRows; i++) {
+            //Take the closer of the two frontier rows, preferring the lower row
+            if (upper > numRows || (lower >= 1 && (numRows + 1) - 2 * lower <= 2 * upper - (numRows + 1))) {
+                rowsByCenterDistance[i] = lower--;
+            } else {
+                rowsByCenterDistance[i] = upper++;
             }
-            
-            previousRow = rowHead;
         }
     }
     
-    //Displays the current state of the auditorium
-    //Shows column letters at top and row numbers on left
-    public void display() {
-        //Print column headers (seat letters)
-        System.out.print(" ");
-        for (int i = 0; i < seatsPerRow; i++) {
-            System.out.print((char)('A' + i));
+    //Adjusts the reserved seat counters for one seat of the given type
+    private void countSeat(char ticketType, int delta) {
+        reservedCount.addAndGet(delta);
+        if (ticketType < ticketTypeCounts.length()) {
+            ticketTypeCounts.addAndGet(ticketType, delta);
         }
-        System.out.println();
+    }
+    
+    //Returns the position of a seat in row-major order
+    private int seatIndex(int row, int seat) {
+        return (row - 1) * seatsPerRow + seat;
+    }
+    
+    //Acquires the lock for a row and returns it to be released in a finally block
+    private ReentrantLock lockRow(int row) {
+        ReentrantLock lock = rowLocks[row - 1];
+        lock.lock();
+        return lock;
+    }
+    
+    //Renders the seat map with column letters at top and row numbers on left
+    //(# for reserved or held, . for available), one line per row
+    private void renderSeatMap() {
+        StringBuilder map = new StringBuilder();
+        String lineBreak = System.lineSeparator();
+        seatMapRowStarts = new int[numRows];
         
-        //Print each row with row number
-        Node currentRow = first;
-        int rowNumber = 1;
+        map.append(' ');
+        for (int i = 0; i < seatsPerRow; i++) {
+            map.append((char)('A' + i));
+        }
+        map.append(lineBreak);
         
-        while (currentRow != null) {
-            System.out.print(rowNumber + " ");
-            
-            //Print each seat in the row (# for reserved, . for available)
-            Node currentSeat = currentRow;
-            while (currentSeat != null) {
-                System.out.print(currentSeat.getSeat().isReserved() ? '#' : '.');
-                currentSeat = currentSeat.getRight();
+        for (int row = 1; row <= numRows; row++) {
+            map.append(row).append(' ');
+            seatMapRowStarts[row - 1] = map.length();
+            for (int seat = 0; seat < seatsPerRow; seat++) {
+                map.append(grid.isReserved(row, seat) || grid.isHeld(row, seat) ? '#' : '.');
             }
-            
-            System.out.println();
-            currentRow = currentRow.getDown();
-            rowNumber++;
+            map.append(lineBreak);
         }
+        
+        seatMap = new char[map.length()];
+        map.getChars(0, map.length(), seatMap, 0);
+    }
+    
+    //Shows a seat as taken (#) or available (.) in the seat map
+    private void markSeat(int row, int seat, boolean taken) {
+        seatMap[seatMapRowStarts[row - 1] + seat] = taken ? '#' : '.';
+    }
+    
+    //Recomputes the longest open run for a row by scanning the whole row
+    private void refreshFreeRun(int row) {
+        longestFreeRun[row - 1] = grid.getLongestFreeRun(row);
+    }
+    
+    //Checks, before a range of open seats is taken, whether taking it can shorten
+    //the longest open run of its row. Only a range inside a run of that length
+    //can, so the row is rescanned afterwards only in that case
+    private boolean takesLongestRun(int row, int startSeat, int numberOfSeats) {
+        return grid.getFreeRunAround(row, startSeat, numberOfSeats) >= longestFreeRun[row - 1];
+    }
+    
+    //Updates the longest open run of a row after a range of its seats was freed
+    //Freeing seats only lengthens the run they join, so the longest run is
+    //either the previous one or that run, found by looking at its neighbors
+    private void growFreeRun(int row, int startSeat, int numberOfSeats) {
+        longestFreeRun[row - 1] = Math.max(longestFreeRun[row - 1],
+            grid.getFreeRunAround(row, startSeat, numberOfSeats));
+    }
+    
+    //Displays the current state of the auditorium
+    //Shows column letters at top and row numbers on left
+    //The seat map is kept current by every seat change, so it is printed in one
+    //call without taking the row locks; a booking made at the same moment may
+    //show only some of its seats
+    public void display(Console console) {
+        expireHolds();
+        console.print(seatMap, 0, seatMap.length);
     }
     
     //Returns the total number of rows in the auditorium
@@ -136,6 +237,20 @@ public class Auditorium {
         return auditoriumNumber;
     }
     
+    //Returns the longest run of consecutive open seats in a row
+    public int getLongestFreeRun(int row) {
+        if (row < 1 || row > numRows) {
+            return 0;
+        }
+        
+        ReentrantLock lock = lockRow(row);
+        try {
+            return longestFreeRun[row - 1];
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     //Checks if a range of consecutive seats is available for reservation
     public boolean checkAvailability(int row, int startSeat, int numberOfSeats) {
         //Validate input parameters
@@ -143,51 +258,321 @@ public class Auditorium {
             return false;
         }
         
-        //Navigate to the specified row
-        Node rowNode = first;
-        for (int i = 1; i < row; i++) {
-            rowNode = rowNode.getDown();
+        expireHolds();
+        
+        //Check if all consecutive seats are available
+        ReentrantLock lock = lockRow(row);
+        try {
+            return grid.isRangeFree(row, startSeat, numberOfSeats);
+        } finally {
+            lock.unlock();
         }
+    }
+    
+    //Atomically checks that a range of consecutive seats is open and reserves it
+    //Seats are filled with adult tickets first, then child, then senior
+    //Returns false without reserving anything if any seat in the range is taken
+    //owner: The order the seats are recorded against, may be null
+    public boolean reserveIfAvailable(int row, int startSeat, 
+        int adultTickets, int childTickets, int seniorTickets, Customer.Order owner) {
+        int numberOfSeats = adultTickets + childTickets + seniorTickets;
         
-        //Navigate to the starting seat in the row
-        Node seatNode = rowNode;
-        for (int i = 0; i < startSeat; i++) {
-            seatNode = seatNode.getRight();
+        if (row < 1 || row > numRows || startSeat < 0 || numberOfSeats <= 0 ||
+            startSeat + numberOfSeats > seatsPerRow) {
+            return false;
         }
         
-        //Check if all consecutive seats are available
-        for (int i = 0; i < numberOfSeats; i++) {
-            if (seatNode == null || seatNode.getSeat().isReserved()) {
+        expireHolds();
+        
+        ReentrantLock lock = lockRow(row);
+        try {
+            if (!grid.isRangeFree(row, startSeat, numberOfSeats)) {
+                return false;
+            }
+            
+            boolean shortensLongest = takesLongestRun(row, startSeat, numberOfSeats);
+            reserveBlockLocked(row, startSeat, adultTickets, childTickets, seniorTickets, owner);
+            if (shortensLongest) {
+                refreshFreeRun(row);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Reserves every block of seats or none of them
+    //The rows involved are locked in ascending order, so bulk reservations never
+    //deadlock with each other or with the single-row operations, and all blocks
+    //are checked before any seat is reserved. Returns false without reserving
+    //anything if a block is out of range, overlaps another block, covers a
+    //seat that is taken or held, or has a ticket type other than A, C or S
+    public boolean reserveBlocks(List<SeatBlock> blocks) {
+        if (blocks.isEmpty()) {
+            return false;
+        }
+        
+        //Visit the blocks in row and seat order, which is also the lock order
+        SeatBlock[] sorted = blocks.toArray(new SeatBlock[0]);
+        Arrays.sort(sorted, (x, y) -> x.getRow() != y.getRow() 
+            ? Integer.compare(x.getRow(), y.getRow()) : Integer.compare(x.getStartSeat(), y.getStartSeat()));
+        for (int i = 0; i < sorted.length; i++) {
+            SeatBlock block = sorted[i];
+            if (block.getRow() < 1 || block.getRow() > numRows || block.getStartSeat() < 0 
+                || block.getNumberOfSeats() == 0 || !isTicketTypes(block.getTicketTypes())
+                || block.getStartSeat() + block.getNumberOfSeats() > seatsPerRow) {
+                return false;
+            }
+            SeatBlock previous = i > 0 ? sorted[i - 1] : null;
+            if (previous != null && previous.getRow() == block.getRow() 
+                && previous.getStartSeat() + previous.getNumberOfSeats() > block.getStartSeat()) {
                 return false;
             }
-            seatNode = seatNode.getRight();
         }
         
+        expireHolds();
+        
+        //Lock every distinct row, lowest first
+        ReentrantLock[] locks = new ReentrantLock[sorted.length];
+        int lockCount = 0;
+        try {
+            for (SeatBlock block : sorted) {
+                if (lockCount == 0 || locks[lockCount - 1] != rowLocks[block.getRow() - 1]) {
+                    locks[lockCount++] = lockRow(block.getRow());
+                }
+            }
+            
+            for (SeatBlock block : sorted) {
+                if (!grid.isRangeFree(block.getRow(), block.getStartSeat(), block.getNumberOfSeats())) {
+                    return false;
+                }
+            }
+            
+            //Find the rows whose longest open run a block takes from before any seat is taken
+            boolean[] shortensLongest = new boolean[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                SeatBlock block = sorted[i];
+                shortensLongest[i] = takesLongestRun(block.getRow(), block.getStartSeat(), block.getNumberOfSeats());
+            }
+            
+            boolean rowShortened = false;
+            for (int i = 0; i < sorted.length; i++) {
+                SeatBlock block = sorted[i];
+                String ticketTypes = block.getTicketTypes();
+                for (int j = 0; j < ticketTypes.length(); j++) {
+                    reserveLocked(block.getRow(), block.getStartSeat() + j, ticketTypes.charAt(j), block.getOwner());
+                }
+                //Rescan each row at most once, after its last block
+                rowShortened |= shortensLongest[i];
+                if (i + 1 == sorted.length || sorted[i + 1].getRow() != block.getRow()) {
+                    if (rowShortened) {
+                        refreshFreeRun(block.getRow());
+                    }
+                    rowShortened = false;
+                }
+            }
+            return true;
+        } finally {
+            for (int i = lockCount - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+    
+    //Checks that every character is a priced ticket type (A, C or S)
+    private static boolean isTicketTypes(String ticketTypes) {
+        for (int i = 0; i < ticketTypes.length(); i++) {
+            char ticketType = ticketTypes.charAt(i);
+            if (ticketType != 'A' && ticketType != 'C' && ticketType != 'S') {
+                return false;
+            }
+        }
         return true;
     }
     
-    //Reserves a specific seat with a ticket type
-    public void reserveSeat(int row, int seat, char ticketType) {
-        //Validate input parameters
-        if (row < 1 || row > numRows || seat < 0 || seat >= seatsPerRow) {
+    //Holds the best available block of seats for ttlMillis milliseconds
+    //Returns null if no block of the requested size is open
+    public SeatHold holdBestAvailable(int numberOfSeats, long ttlMillis) {
+        while (true) {
+            int[] bestSeats = findBestAvailable(numberOfSeats);
+            if (bestSeats == null) {
+                return null;
+            }
+            
+            //Another session may take the seats between the search and the hold
+            SeatHold hold = holdIfAvailable(bestSeats[0], bestSeats[1], numberOfSeats, ttlMillis);
+            if (hold != null) {
+                return hold;
+            }
+        }
+    }
+    
+    //Atomically checks that a range of consecutive seats is open and holds it
+    //for ttlMillis milliseconds. Returns null if any seat in the range is taken
+    public SeatHold holdIfAvailable(int row, int startSeat, int numberOfSeats, long ttlMillis) {
+        if (row < 1 || row > numRows || startSeat < 0 || numberOfSeats <= 0 ||
+            startSeat + numberOfSeats > seatsPerRow) {
+            return null;
+        }
+        
+        expireHolds();
+        
+        long deadline = holdWheel.deadlineTick(System.currentTimeMillis(), ttlMillis);
+        SeatHold hold = new SeatHold(row, startSeat, numberOfSeats, deadline);
+        
+        ReentrantLock lock = lockRow(row);
+        try {
+            if (!grid.isRangeFree(row, startSeat, numberOfSeats)) {
+                return null;
+            }
+            boolean shortensLongest = takesLongestRun(row, startSeat, numberOfSeats);
+            for (int i = 0; i < numberOfSeats; i++) {
+                grid.hold(row, startSeat + i);
+                markSeat(row, startSeat + i, true);
+            }
+            if (shortensLongest) {
+                refreshFreeRun(row);
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        holdWheel.schedule(hold);
+        return hold;
+    }
+    
+    //Turns held seats into a reservation, filling adult, child, then senior tickets
+    //Returns false if the hold already expired or was released, or if any of its
+    //seats is no longer held, in which case the rest of the hold is given back
+    //owner: The order the seats are recorded against, may be null
+    public boolean confirmHold(SeatHold hold, int adultTickets, int childTickets, int seniorTickets, 
+        Customer.Order owner) {
+        if (adultTickets + childTickets + seniorTickets != hold.getNumberOfSeats()) {
+            return false;
+        }
+        if (!hold.markConfirmed()) {
+            return false;
+        }
+        
+        int row = hold.getRow();
+        ReentrantLock lock = lockRow(row);
+        try {
+            for (int i = 0; i < hold.getNumberOfSeats(); i++) {
+                if (!grid.isHeld(row, hold.getStartSeat() + i)) {
+                    releaseHeldSeats(hold);
+                    return false;
+                }
+            }
+            reserveBlockLocked(row, hold.getStartSeat(), adultTickets, childTickets, seniorTickets, owner);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Gives held seats back if the hold is still active
+    //Does nothing for holds that were already confirmed, released or expired
+    public void releaseHold(SeatHold hold) {
+        if (hold.markReleased()) {
+            releaseHeldSeats(hold);
+        }
+    }
+    
+    //Releases every hold whose deadline has passed
+    //Cheap when no timer wheel tick is due, so it is called before seat queries
+    public void expireHolds() {
+        long now = System.currentTimeMillis();
+        if (!holdWheel.isDue(now)) {
             return;
         }
         
-        //Navigate to the specified row
-        Node rowNode = first;
-        for (int i = 1; i < row; i++) {
-            rowNode = rowNode.getDown();
+        for (SeatHold hold : holdWheel.advance(now)) {
+            if (hold.markExpired()) {
+                releaseHeldSeats(hold);
+            }
+        }
+    }
+    
+    //Makes the seats of an ended hold available again
+    private void releaseHeldSeats(SeatHold hold) {
+        int row = hold.getRow();
+        ReentrantLock lock = lockRow(row);
+        try {
+            //Grow the free run once for each stretch of released seats
+            int stretchStart = -1;
+            for (int i = 0; i <= hold.getNumberOfSeats(); i++) {
+                int seat = hold.getStartSeat() + i;
+                //Skip seats that are no longer held
+                if (i < hold.getNumberOfSeats() && grid.isHeld(row, seat)) {
+                    grid.release(row, seat);
+                    markSeat(row, seat, false);
+                    if (stretchStart < 0) {
+                        stretchStart = seat;
+                    }
+                } else if (stretchStart >= 0) {
+                    growFreeRun(row, stretchStart, seat - stretchStart);
+                    stretchStart = -1;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Reserves an open seat with a ticket type, without recording an owner
+    //Returns false without changing anything if the seat is reserved or held,
+    //so a seat never loses the order recorded against it
+    public boolean reserveSeat(int row, int seat, char ticketType) {
+        //Validate input parameters
+        if (row < 1 || row > numRows || seat < 0 || seat >= seatsPerRow) {
+            return false;
         }
         
-        //Navigate to the specified seat
-        Node seatNode = rowNode;
-        for (int i = 0; i < seat; i++) {
-            seatNode = seatNode.getRight();
+        expireHolds();
+        
+        ReentrantLock lock = lockRow(row);
+        try {
+            if (!grid.isRangeFree(row, seat, 1)) {
+                return false;
+            }
+            boolean shortensLongest = takesLongestRun(row, seat, 1);
+            reserveLocked(row, seat, ticketType, null);
+            if (shortensLongest) {
+                refreshFreeRun(row);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Reserves consecutive seats with adult tickets first, then child, then senior
+    private void reserveBlockLocked(int row, int startSeat, 
+        int adultTickets, int childTickets, int seniorTickets, Customer.Order owner) {
+        int currentSeat = startSeat;
+        for (int i = 0; i < adultTickets; i++) {
+            reserveLocked(row, currentSeat++, 'A', owner);
+        }
+        for (int i = 0; i < childTickets; i++) {
+            reserveLocked(row, currentSeat++, 'C', owner);
         }
+        for (int i = 0; i < seniorTickets; i++) {
+            reserveLocked(row, currentSeat++, 'S', owner);
+        }
+    }
+    
+    //Reserves an open or held seat and updates the counters and ownership index
+    //The caller updates the free run index afterwards
+    private void reserveLocked(int row, int seat, char ticketType, Customer.Order owner) {
+        countSeat(ticketType, 1);
         
-        //Reserve the seat and set its ticket type
-        seatNode.getSeat().reserve();
-        seatNode.getSeat().setTicketType(ticketType);
+        //Reserve the seat, set its ticket type and record the owning order
+        grid.reserve(row, seat, ticketType);
+        markSeat(row, seat, true);
+        seatOwners[seatIndex(row, seat)] = owner;
+        if (store != null) {
+            store.reserve(row, seat, ticketType);
+        }
     }
     
     //Unreserves a specific seat, making it available again
@@ -197,20 +582,84 @@ public class Auditorium {
             return;
         }
         
-        //Navigate to the specified row
-        Node rowNode = first;
-        for (int i = 1; i < row; i++) {
-            rowNode = rowNode.getDown();
+        ReentrantLock lock = lockRow(row);
+        try {
+            //Nothing to do if the seat is already open
+            if (!grid.isReserved(row, seat)) {
+                return;
+            }
+            unreserveLocked(row, seat);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Unreserves a seat only if it is recorded against the given order
+    //Returns false if the seat is open or belongs to someone else
+    public boolean unreserveSeat(int row, int seat, Customer.Order owner) {
+        if (row < 1 || row > numRows || seat < 0 || seat >= seatsPerRow) {
+            return false;
+        }
+        
+        ReentrantLock lock = lockRow(row);
+        try {
+            if (!grid.isReserved(row, seat) || seatOwners[seatIndex(row, seat)] != owner) {
+                return false;
+            }
+            unreserveLocked(row, seat);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Unreserves a reserved seat and updates the counters and indexes
+    private void unreserveLocked(int row, int seat) {
+        countSeat(grid.getTicketType(row, seat), -1);
+        
+        //Unreserve the seat and forget its owner
+        grid.unreserve(row, seat);
+        markSeat(row, seat, false);
+        seatOwners[seatIndex(row, seat)] = null;
+        if (store != null) {
+            store.unreserve(row, seat);
+        }
+        growFreeRun(row, seat, 1);
+    }
+    
+    //Records an order as the owner of a reserved seat that has no owner yet
+    //Used when stored orders are loaded after their seats were reserved
+    //Returns false if the seat is open or already owned
+    public boolean claimSeat(int row, int seat, Customer.Order owner) {
+        if (row < 1 || row > numRows || seat < 0 || seat >= seatsPerRow) {
+            return false;
         }
         
-        //Navigate to the specified seat
-        Node seatNode = rowNode;
-        for (int i = 0; i < seat; i++) {
-            seatNode = seatNode.getRight();
+        ReentrantLock lock = lockRow(row);
+        try {
+            if (!grid.isReserved(row, seat) || seatOwners[seatIndex(row, seat)] != null) {
+                return false;
+            }
+            seatOwners[seatIndex(row, seat)] = owner;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Returns the order holding a seat, or null if the seat is open
+    //or was reserved without an order (for example loaded from the layout file)
+    public Customer.Order getSeatOwner(int row, int seat) {
+        if (row < 1 || row > numRows || seat < 0 || seat >= seatsPerRow) {
+            return null;
         }
         
-        //Unreserve the seat
-        seatNode.getSeat().unreserve();
+        ReentrantLock lock = lockRow(row);
+        try {
+            return seatOwners[seatIndex(row, seat)];
+        } finally {
+            lock.unlock();
+        }
     }
     
     //Gets the ticket type of a reserved seat
@@ -221,179 +670,190 @@ public class Auditorium {
             return '.';
         }
         
-        //Navigate to the specified row
-        Node rowNode = first;
-        for (int i = 1; i < row; i++) {
-            rowNode = rowNode.getDown();
-        }
-        
-        //Navigate to the specified seat
-        Node seatNode = rowNode;
-        for (int i = 0; i < seat; i++) {
-            seatNode = seatNode.getRight();
-        }
-        
         //Return the ticket type
-        return seatNode.getSeat().getTicketType();
+        ReentrantLock lock = lockRow(row);
+        try {
+            return grid.getTicketType(row, seat);
+        } finally {
+            lock.unlock();
+        }
     }
     
     //Finds the best available consecutive seats closest to the center
+    //Distances are compared as squared integers measured in half seats, so
+    //a row offset of dr and a seat offset of ds give (2dr)^2 + (2ds)^2.
+    //Rows are visited from the center outwards and the search stops once
+    //the row offset alone is farther than the best selection found.
+    //Ties go to the lower row, then the lower seat.
     public int[] findBestAvailable(int numberOfSeats) {
         //Validate number of seats requested
         if (numberOfSeats <= 0 || numberOfSeats > seatsPerRow) {
             return null;
         }
         
-        //Calculate center coordinates of the auditorium
-        double centerRow = (numRows + 1) / 2.0;
-        double centerSeat = (seatsPerRow + 1) / 2.0;
+        expireHolds();
+        
+        //Starting seats closest to the center of a row (equal when centered exactly)
+        int centerLow = (seatsPerRow - numberOfSeats) / 2;
+        int centerHigh = (seatsPerRow - numberOfSeats + 1) / 2;
         
         //Track the best seats found so far
-        double bestDistance = Double.MAX_VALUE;
-        int[] bestSeats = null;
-        
-        //Search through each row
-        Node rowNode = first;
-        for (int r = 1; r <= numRows; r++) {
-            //Check each possible starting position in the row
-            for (int s = 0; s <= seatsPerRow - numberOfSeats; s++) {
-                boolean available = true;
-                
-                //Check if enough consecutive seats are available
-                Node seatNode = rowNode;
-                //Navigate to starting seat position
-                for (int i = 0; i < s; i++) {
-                    if (seatNode == null) {
-                        available = false;
-                        break;
-                    }
-                    seatNode = seatNode.getRight();
-                }
-                
-                //Verify consecutive seats are available
-                Node checkNode = seatNode;
-                for (int i = 0; i < numberOfSeats; i++) {
-                    if (checkNode == null || checkNode.getSeat().isReserved()) {
-                        available = false;
-                        break;
-                    }
-                    checkNode = checkNode.getRight();
-                }
-                
-                if (available) {
-                    //Calculate center position of this seat selection
-                    double selectionCenterRow = r;
-                    double selectionCenterSeat = s + (numberOfSeats - 1) / 2.0 + 1;
-                    
-                    //Calculate distance from auditorium center
-                    double distance = Math.sqrt(
-                        Math.pow(selectionCenterRow - centerRow, 2) +
-                        Math.pow(selectionCenterSeat - centerSeat, 2)
-                    );
-                    
-                    //Update best seats if closer to center or
-                    //if equal distance but better positioned
-                    if (bestSeats == null || 
-                        distance < bestDistance || 
-                        (distance == bestDistance && r < bestSeats[0]) ||
-                        (distance == bestDistance && r == bestSeats[0] && s < bestSeats[1])) {
-                        bestDistance = distance;
-                        bestSeats = new int[]{r, s};
-                    }
+        int bestDistance = Integer.MAX_VALUE;
+        int bestRow = 0;
+        int bestSeat = 0;
+        
+        //Search rows from the center outwards
+        for (int r : rowsByCenterDistance) {
+            int rowOffset = 2 * r - (numRows + 1);
+            int rowDistance = rowOffset * rowOffset;
+            
+            //No seat in this row or any farther row can beat the best selection
+            if (rowDistance > bestDistance) {
+                break;
+            }
+            
+            //Skip rows that cannot fit the party
+            int s;
+            ReentrantLock lock = lockRow(r);
+            try {
+                if (longestFreeRun[r - 1] < numberOfSeats) {
+                    continue;
                 }
+                s = findClosestStart(r, numberOfSeats, centerLow, centerHigh);
+            } finally {
+                lock.unlock();
             }
             
-            rowNode = rowNode.getDown();
+            int seatOffset = 2 * s + numberOfSeats - seatsPerRow;
+            int distance = rowDistance + seatOffset * seatOffset;
+            
+            //Update best seats if closer to center or
+            //if equal distance but better positioned
+            if (distance < bestDistance ||
+                (distance == bestDistance && r < bestRow) ||
+                (distance == bestDistance && r == bestRow && s < bestSeat)) {
+                bestDistance = distance;
+                bestRow = r;
+                bestSeat = s;
+            }
         }
         
-        return bestSeats;
+        if (bestDistance == Integer.MAX_VALUE) {
+            return null;
+        }
+        return new int[]{bestRow, bestSeat};
     }
     
-    //Counts the number of available (unreserved) seats
-    public int getOpenSeatCount() {
-        int count = 0;
-        Node rowNode = first;
-        
-        while (rowNode != null) {
-            Node seatNode = rowNode;
-            while (seatNode != null) {
-                if (!seatNode.getSeat().isReserved()) {
-                    count++;
-                }
-                seatNode = seatNode.getRight();
-            }
-            rowNode = rowNode.getDown();
+    //Returns the open starting seat in a row closest to the row center
+    //The row must contain a run of at least numberOfSeats open seats
+    private int findClosestStart(int row, int numberOfSeats, int centerLow, int centerHigh) {
+        //Most lookups in a lightly booked house end at the centered start
+        if (grid.isRangeFree(row, centerLow, numberOfSeats)) {
+            return centerLow;
         }
         
-        return count;
+        //Every set bit marks a starting seat with enough consecutive open seats
+        long[] runStarts = grid.findRunStarts(row, numberOfSeats);
+        int left = highestBitAtOrBelow(runStarts, centerLow);
+        int right = lowestBitAtOrAbove(runStarts, centerHigh);
+        
+        //Take the nearer side, preferring the lower seat when equally far
+        if (left < 0) {
+            return right;
+        }
+        if (right < 0 || centerLow - left <= right - centerHigh) {
+            return left;
+        }
+        return right;
     }
     
-    //Counts the number of reserved seats
-    public int getReservedSeatCount() {
-        int count = 0;
-        Node rowNode = first;
-        
-        while (rowNode != null) {
-            Node seatNode = rowNode;
-            while (seatNode != null) {
-                if (seatNode.getSeat().isReserved()) {
-                    count++;
-                }
-                seatNode = seatNode.getRight();
+    //Returns the highest set bit with index at most limit, or -1 if none
+    private static int highestBitAtOrBelow(long[] bits, int limit) {
+        int w = limit >>> 6;
+        long word = bits[w] & (-1L >>> (63 - (limit & 63)));
+        
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
             }
-            rowNode = rowNode.getDown();
+            if (--w < 0) {
+                return -1;
+            }
+            word = bits[w];
         }
+    }
+    
+    //Returns the lowest set bit with index at least limit, or -1 if none
+    private static int lowestBitAtOrAbove(long[] bits, int limit) {
+        int w = limit >>> 6;
+        if (w >= bits.length) {
+            return -1;
+        }
+        long word = bits[w] & (-1L << limit);
         
-        return count;
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w >= bits.length) {
+                return -1;
+            }
+            word = bits[w];
+        }
+    }
+    
+    //Returns the number of available (unreserved) seats
+    public int getOpenSeatCount() {
+        return numRows * seatsPerRow - reservedCount.get();
+    }
+    
+    //Returns the number of reserved seats
+    public int getReservedSeatCount() {
+        return reservedCount.get();
     }
     
-    //Counts seats with a specific ticket type (A=Adult, C=Child, S=Senior)
+    //Returns the number of seats with a specific ticket type (A=Adult, C=Child, S=Senior)
     public int getTicketTypeCount(char ticketType) {
-        int count = 0;
-        Node rowNode = first;
-        
-        while (rowNode != null) {
-            Node seatNode = rowNode;
-            while (seatNode != null) {
-                if (seatNode.getSeat().isReserved() && 
-                    seatNode.getSeat().getTicketType() == ticketType) {
-                    count++;
-                }
-                seatNode = seatNode.getRight();
-            }
-            rowNode = rowNode.getDown();
+        if (ticketType >= ticketTypeCounts.length()) {
+            return 0;
         }
-        
-        return count;
+        return ticketTypeCounts.get(ticketType);
     }
     
     //Saves the current auditorium state to a file
     //Reserved seats are saved with their ticket type, unreserved seats as '.'
     public void saveToFile(String filename) {
         try (PrintWriter writer = new PrintWriter(new File(filename))) {
-            Node rowNode = first;
-            
-            while (rowNode != null) {
-                Node seatNode = rowNode;
+            for (int row = 1; row <= numRows; row++) {
                 StringBuilder rowText = new StringBuilder();
                 
                 //Build string representation of the row
-                while (seatNode != null) {
-                    if (seatNode.getSeat().isReserved()) {
-                        rowText.append(seatNode.getSeat().getTicketType());
-                    } else {
-                        rowText.append('.');
+                ReentrantLock lock = lockRow(row);
+                try {
+                    for (int seat = 0; seat < seatsPerRow; seat++) {
+                        if (grid.isReserved(row, seat)) {
+                            rowText.append(grid.getTicketType(row, seat));
+                        } else {
+                            rowText.append('.');
+                        }
                     }
-                    seatNode = seatNode.getRight();
+                } finally {
+                    lock.unlock();
                 }
                 
                 //Write row to file
                 writer.println(rowText.toString());
-                rowNode = rowNode.getDown();
             }
         } catch (FileNotFoundException e) {
             System.out.println("Error saving auditorium to file: " + e.getMessage());
         }
     }
     
-}
\ No newline at end of file
+    //Forces the mapped binary layout out to disk, if the auditorium is mapped
+    public void flush() {
+        if (store != null) {
+            store.force();
+        }
+    }
+
+}
@@ -0,0 +1,568 @@
+import java.io.*;
+import java.util.*;
+
+//Headless command mode that runs a stream of commands without the menus.
+//Every input line is one flat JSON object whose "op" names the operation:
+//  login    user, password
+//  logout
+//  reserve  aud, row, seat, adult, child, senior, best (take the best available
+//           block when the requested seats are taken)
+//  group    aud, blocks (such as "2A:AAC,3D:SS", a row and seat then one ticket
+//           letter per seat); one order per block, all reserved or none
+//  add      order, row, seat, adult, child, senior
+//  delete   order, row, seat
+//  cancel   order
+//  receipt
+//  report   (admin only)
+//  save     (admin only, writes A1Final.txt to A3Final.txt)
+//Rows count from 1, seats are letters and orders are numbered from 1 in the
+//order they were placed, as in the Update Order menu. Ticket counts default to 0.
+//Every command writes one compact JSON result line, {"ok":true,...} or
+//{"ok":false,"error":"..."}, and an "id" given with a command is echoed back.
+//Amounts are in cents.
+public class BatchMode {
+    //How long the best available seats are held before being confirmed
+    //The hold is confirmed straight away, so it only has to outlive the command
+    private static final long HOLD_MILLIS = 1000;
+    
+    //Order operations the commands run against
+    private BoxOffice boxOffice;
+    //Customer logged in by the last login command, null when logged out
+    private Customer customer = null;
+    //Fields of the command being run, values of strings already unescaped
+    private Map<String, String> fields = new HashMap<>();
+    //Names of the fields whose values were JSON strings
+    private Set<String> quoted = new HashSet<>();
+    //Line being parsed and the parse position in it
+    private String text;
+    private int pos;
+    //Reusable buffers for string values and the result line, cleared before each use
+    private final StringBuilder valueBuffer = new StringBuilder(64);
+    private final StringBuilder result = new StringBuilder(256);
+    
+    //Constructor runs commands against the given box office
+    public BatchMode(BoxOffice boxOffice) {
+        this.boxOffice = boxOffice;
+    }
+    
+    //Runs every command from the reader and writes one result line for each
+    //Blank lines are skipped. Returns the number of commands run
+    public long run(BufferedReader in, Writer out) throws IOException {
+        long commands = 0;
+        String line;
+        
+        while ((line = in.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            result.setLength(0);
+            execute(line);
+            result.append('\n');
+            out.append(result);
+            commands++;
+        }
+        
+        return commands;
+    }
+    
+    //Runs one command line and leaves its result in the result buffer
+    private void execute(String line) {
+        result.append('{');
+        int start = result.length();
+        
+        try {
+            parse(line);
+            if (fields.containsKey("id")) {
+                result.append("\"id\":");
+                appendValue("id");
+                result.append(',');
+                start = result.length();
+            }
+            
+            String op = fields.get("op");
+            if (op == null) {
+                throw new IllegalArgumentException("missing op");
+            }
+            switch (op) {
+                case "login": login(); break;
+                case "logout": customer = null; ok(); break;
+                case "reserve": reserve(); break;
+                case "group": reserveGroup(); break;
+                case "add": addTickets(); break;
+                case "delete": deleteSeat(); break;
+                case "cancel": cancel(); break;
+                case "receipt": receipt(); break;
+                case "report": report(); break;
+                case "save": save(); break;
+                default: throw new IllegalArgumentException("unknown op " + op);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            //Drop any partial result of the failed command
+            result.setLength(start);
+            result.append("\"ok\":false,\"error\":");
+            appendString(e.getMessage());
+        }
+        
+        result.append('}');
+    }
+    
+    //Logs a customer or the admin in
+    private void login() {
+        Customer loggedIn = boxOffice.login(required("user"), required("password"));
+        if (loggedIn == null) {
+            throw new IllegalArgumentException("invalid login");
+        }
+        customer = loggedIn;
+        ok();
+    }
+    
+    //Reserves a block of seats as a new order
+    private void reserve() throws IOException {
+        Customer current = requireCustomer();
+        int auditoriumNumber = intField("aud", 1, boxOffice.getAuditoriumCount());
+        Auditorium auditorium = boxOffice.getAuditorium(auditoriumNumber);
+        int row = intField("row", 1, auditorium.getNumRows());
+        int seat = seatField(auditorium);
+        int adultTickets = ticketField("adult", auditorium);
+        int childTickets = ticketField("child", auditorium);
+        int seniorTickets = ticketField("senior", auditorium);
+        int totalTickets = adultTickets + childTickets + seniorTickets;
+        if (totalTickets == 0) {
+            throw new IllegalArgumentException("no tickets selected");
+        }
+        
+        Customer.Order order = boxOffice.reserve(current, auditoriumNumber, row, seat,
+            adultTickets, childTickets, seniorTickets);
+        if (order == null && "true".equals(fields.get("best"))) {
+            SeatHold hold = auditorium.holdBestAvailable(totalTickets, HOLD_MILLIS);
+            if (hold != null) {
+                try {
+                    order = boxOffice.confirmHold(current, auditoriumNumber, hold,
+                        adultTickets, childTickets, seniorTickets);
+                } finally {
+                    auditorium.releaseHold(hold);
+                }
+            }
+        }
+        if (order == null) {
+            throw new IllegalArgumentException("seats not available");
+        }
+        
+        ok();
+        result.append(",\"order\":").append(current.getOrders().size());
+        appendOrderState(order);
+    }
+    
+    //Reserves several blocks of seats as one new order each, all or none of them
+    //Each seat gets the ticket letter written for it, in order
+    private void reserveGroup() throws IOException {
+        Customer current = requireCustomer();
+        int auditoriumNumber = intField("aud", 1, boxOffice.getAuditoriumCount());
+        Auditorium auditorium = boxOffice.getAuditorium(auditoriumNumber);
+        
+        List<SeatBlock> blocks = new ArrayList<>();
+        for (String block : required("blocks").split(",")) {
+            blocks.add(parseBlock(auditorium, block.trim()));
+        }
+        List<Customer.Order> orders = boxOffice.reserveGroup(current, auditoriumNumber, blocks);
+        if (orders == null) {
+            throw new IllegalArgumentException("seats not available");
+        }
+        
+        ok();
+        int firstOrder = current.getOrders().size() - orders.size() + 1;
+        long totalCents = 0;
+        result.append(",\"orders\":[");
+        for (int i = 0; i < orders.size(); i++) {
+            Customer.Order order = orders.get(i);
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"order\":").append(firstOrder + i);
+            appendOrderState(order);
+            result.append('}');
+            totalCents += order.getTotalCents();
+        }
+        result.append("],\"totalCents\":").append(totalCents);
+    }
+    
+    //Parses one group block such as "2A:AAC" into a block without an owner
+    private SeatBlock parseBlock(Auditorium auditorium, String block) {
+        int colon = block.indexOf(':');
+        if (colon < 2) {
+            throw new IllegalArgumentException("invalid block " + block);
+        }
+        
+        int row;
+        try {
+            row = Integer.parseInt(block.substring(0, colon - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid block " + block);
+        }
+        int seat = Character.toUpperCase(block.charAt(colon - 1)) - 'A';
+        String tickets = block.substring(colon + 1).toUpperCase();
+        
+        for (int i = 0; i < tickets.length(); i++) {
+            if ("ACS".indexOf(tickets.charAt(i)) < 0) {
+                throw new IllegalArgumentException("invalid block " + block);
+            }
+        }
+        if (row < 1 || row > auditorium.getNumRows() || seat < 0 || tickets.isEmpty()
+            || seat + tickets.length() > auditorium.getSeatsPerRow()) {
+            throw new IllegalArgumentException("invalid block " + block);
+        }
+        return new SeatBlock(row, seat, tickets, null);
+    }
+    
+    //Adds a block of seats to an existing order
+    private void addTickets() throws IOException {
+        Customer.Order order = orderField(requireCustomer());
+        Auditorium auditorium = boxOffice.getAuditorium(order.getAuditoriumNumber());
+        int row = intField("row", 1, auditorium.getNumRows());
+        int seat = seatField(auditorium);
+        int adultTickets = ticketField("adult", auditorium);
+        int childTickets = ticketField("child", auditorium);
+        int seniorTickets = ticketField("senior", auditorium);
+        if (adultTickets + childTickets + seniorTickets == 0) {
+            throw new IllegalArgumentException("no tickets selected");
+        }
+        
+        if (!boxOffice.addTickets(order, row, seat, adultTickets, childTickets, seniorTickets)) {
+            throw new IllegalArgumentException("seats not available");
+        }
+        ok();
+        appendOrderState(order);
+    }
+    
+    //Removes one seat from an order, which is removed once it has no tickets left
+    private void deleteSeat() throws IOException {
+        Customer.Order order = orderField(requireCustomer());
+        Auditorium auditorium = boxOffice.getAuditorium(order.getAuditoriumNumber());
+        int row = intField("row", 1, auditorium.getNumRows());
+        int seat = seatField(auditorium);
+        
+        if (!boxOffice.deleteSeat(order, row, seat)) {
+            throw new IllegalArgumentException("seat not in order");
+        }
+        ok();
+        appendOrderState(order);
+    }
+    
+    //Cancels an entire order
+    private void cancel() throws IOException {
+        boxOffice.cancel(orderField(requireCustomer()));
+        ok();
+    }
+    
+    //Lists every order of the customer with its total
+    private void receipt() {
+        Customer current = requireCustomer();
+        List<Customer.Order> orders = current.getOrders();
+        
+        ok();
+        result.append(",\"orders\":[");
+        for (int i = 0; i < orders.size(); i++) {
+            Customer.Order order = orders.get(i);
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"order\":").append(i + 1);
+            result.append(",\"aud\":").append(order.getAuditoriumNumber());
+            appendOrderState(order);
+            result.append('}');
+        }
+        result.append("],\"totalCents\":").append(current.getTotalCents());
+    }
+    
+    //Reports the open and reserved seats, ticket counts and sales of every auditorium
+    private void report() {
+        requireAdmin();
+        int totalOpen = 0;
+        int totalReserved = 0;
+        int totalAdult = 0;
+        int totalChild = 0;
+        int totalSenior = 0;
+        long totalSales = 0;
+        
+        ok();
+        result.append(",\"auditoriums\":[");
+        for (int i = 1; i <= boxOffice.getAuditoriumCount(); i++) {
+            Auditorium a = boxOffice.getAuditorium(i);
+            int open = a.getOpenSeatCount();
+            int reserved = a.getReservedSeatCount();
+            int adult = a.getTicketTypeCount('A');
+            int child = a.getTicketTypeCount('C');
+            int senior = a.getTicketTypeCount('S');
+            long sales = Pricing.getRevenueCents(a);
+            
+            totalOpen += open;
+            totalReserved += reserved;
+            totalAdult += adult;
+            totalChild += child;
+            totalSenior += senior;
+            totalSales += sales;
+            
+            if (i > 1) {
+                result.append(',');
+            }
+            result.append("{\"aud\":").append(i).append(',');
+            appendCounts(open, reserved, adult, child, senior, sales);
+            result.append('}');
+        }
+        result.append("],\"total\":{");
+        appendCounts(totalOpen, totalReserved, totalAdult, totalChild, totalSenior, totalSales);
+        result.append('}');
+    }
+    
+    //Saves every auditorium to its final layout file
+    private void save() {
+        requireAdmin();
+        boxOffice.saveAuditoriums();
+        ok();
+    }
+    
+    //Starts a successful result
+    private void ok() {
+        result.append("\"ok\":true");
+    }
+    
+    //Appends the seats, ticket counts and total of an order
+    private void appendOrderState(Customer.Order order) {
+        result.append(",\"seats\":\"");
+        order.getSeats().appendTo(result);
+        result.append("\",\"adult\":").append(order.getAdultTickets());
+        result.append(",\"child\":").append(order.getChildTickets());
+        result.append(",\"senior\":").append(order.getSeniorTickets());
+        result.append(",\"totalCents\":").append(order.getTotalCents());
+    }
+    
+    //Appends the seat and ticket counts of one report line
+    private void appendCounts(int open, int reserved, int adult, int child, int senior, long sales) {
+        result.append("\"open\":").append(open);
+        result.append(",\"reserved\":").append(reserved);
+        result.append(",\"adult\":").append(adult);
+        result.append(",\"child\":").append(child);
+        result.append(",\"senior\":").append(senior);
+        result.append(",\"salesCents\":").append(sales);
+    }
+    
+    //Returns the logged in customer, failing if nobody or the admin is logged in
+    private Customer requireCustomer() {
+        if (customer == null || customer.getUsername().equals("admin")) {
+            throw new IllegalArgumentException("not logged in as a customer");
+        }
+        return customer;
+    }
+    
+    //Fails unless the admin is logged in
+    private void requireAdmin() {
+        if (customer == null || !customer.getUsername().equals("admin")) {
+            throw new IllegalArgumentException("not logged in as admin");
+        }
+    }
+    
+    //Returns a field that must be present
+    private String required(String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        return value;
+    }
+    
+    //Returns an integer field that must be present and between min and max
+    private int intField(String name, int min, int max) {
+        int value;
+        try {
+            value = Integer.parseInt(required(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + name);
+        }
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("invalid " + name);
+        }
+        return value;
+    }
+    
+    //Returns a ticket count, 0 when the field is missing
+    //A block can never be longer than a row, which also keeps the sum from overflowing
+    private int ticketField(String name, Auditorium auditorium) {
+        return fields.containsKey(name) ? intField(name, 0, auditorium.getSeatsPerRow()) : 0;
+    }
+    
+    //Returns the 0-indexed seat of a seat letter field
+    private int seatField(Auditorium auditorium) {
+        String seat = required("seat").toUpperCase();
+        int seatIndex = seat.length() == 1 ? seat.charAt(0) - 'A' : -1;
+        if (seatIndex < 0 || seatIndex >= auditorium.getSeatsPerRow()) {
+            throw new IllegalArgumentException("invalid seat");
+        }
+        return seatIndex;
+    }
+    
+    //Returns the customer's order numbered by the order field
+    private Customer.Order orderField(Customer current) {
+        List<Customer.Order> orders = current.getOrders();
+        if (orders.isEmpty()) {
+            throw new IllegalArgumentException("no orders");
+        }
+        return orders.get(intField("order", 1, orders.size()) - 1);
+    }
+    
+    //Appends a field value as it was given, quoted again if it was a string
+    private void appendValue(String name) {
+        if (quoted.contains(name)) {
+            appendString(fields.get(name));
+        } else {
+            result.append(fields.get(name));
+        }
+    }
+    
+    //Appends a JSON string, escaping quotes, backslashes and control characters
+    private void appendString(String value) {
+        result.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        result.append('"');
+    }
+    
+    //Parses a flat JSON object into the field map
+    //Values may be strings, numbers, true, false or null; nested values are rejected
+    private void parse(String line) {
+        fields.clear();
+        quoted.clear();
+        text = line;
+        pos = 0;
+        
+        expect('{');
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+        } else {
+            while (true) {
+                skipSpace();
+                String name = readString();
+                expect(':');
+                skipSpace();
+                char c = peek();
+                if (c == '"') {
+                    fields.put(name, readString());
+                    quoted.add(name);
+                } else if (c == '{' || c == '[') {
+                    throw new IllegalArgumentException("nested values are not supported");
+                } else {
+                    fields.put(name, readLiteral());
+                }
+                
+                skipSpace();
+                char next = next();
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    throw new IllegalArgumentException("malformed command");
+                }
+            }
+        }
+        
+        skipSpace();
+        if (pos < text.length()) {
+            throw new IllegalArgumentException("malformed command");
+        }
+    }
+    
+    //Reads a quoted string at the parse position, unescaping it
+    private String readString() {
+        if (next() != '"') {
+            throw new IllegalArgumentException("malformed command");
+        }
+        valueBuffer.setLength(0);
+        
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return valueBuffer.toString();
+            }
+            if (c != '\\') {
+                valueBuffer.append(c);
+                continue;
+            }
+            
+            char escaped = next();
+            switch (escaped) {
+                case '"': case '\\': case '/': valueBuffer.append(escaped); break;
+                case 'b': valueBuffer.append('\b'); break;
+                case 'f': valueBuffer.append('\f'); break;
+                case 'n': valueBuffer.append('\n'); break;
+                case 'r': valueBuffer.append('\r'); break;
+                case 't': valueBuffer.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw new IllegalArgumentException("malformed command");
+                    }
+                    try {
+                        valueBuffer.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("malformed command");
+                    }
+                    pos += 4;
+                    break;
+                default: throw new IllegalArgumentException("malformed command");
+            }
+        }
+    }
+    
+    //Reads an unquoted number or literal at the parse position
+    private String readLiteral() {
+        int start = pos;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == ',' || c == '}' || Character.isWhitespace(c)) {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw new IllegalArgumentException("malformed command");
+        }
+        return text.substring(start, pos);
+    }
+    
+    //Skips whitespace at the parse position
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+    
+    //Consumes the expected character after any whitespace
+    private void expect(char expected) {
+        skipSpace();
+        if (next() != expected) {
+            throw new IllegalArgumentException("malformed command");
+        }
+    }
+    
+    //Returns the character at the parse position without consuming it
+    private char peek() {
+        if (pos >= text.length()) {
+            throw new IllegalArgumentException("malformed command");
+        }
+        return text.charAt(pos);
+    }
+    
+    //Consumes and returns the character at the parse position
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+}
@@ -0,0 +1,242 @@
+import java.util.*;
+
+//Seat grid backed by one occupancy bitmap per row.
+//Bit s of word s / 64 is set when seat s is reserved or held, and ticket types
+//are kept in a parallel row-major byte array so range checks and run detection
+//work on whole words instead of visiting one seat at a time. A second bitmap
+//marks which of the occupied seats are only held.
+public class BitsetSeatGrid implements SeatGrid {
+    //Byte stored for seats that are not reserved
+    private static final byte OPEN = (byte) '.';
+    
+    //Total number of rows in the grid
+    private int numRows;
+    //Total number of seats per row
+    private int seatsPerRow;
+    //Number of 64-bit words needed to hold one row
+    private int wordsPerRow;
+    //Occupancy bitmap for each row (index 0 is row 1), reserved or held
+    private long[][] occupied;
+    //Bitmap of held seats for each row, always a subset of occupied
+    private long[][] held;
+    //Ticket type of every seat in row-major order
+    private byte[] ticketTypes;
+    
+    //Builds the bitmaps from the text rows of a layout file
+    //Each character is a ticket type (A, C, S) or '.' for an open seat
+    public BitsetSeatGrid(List<String> lines) {
+        numRows = lines.size();
+        if (numRows > 0) {
+            seatsPerRow = lines.get(0).length();
+        }
+        
+        wordsPerRow = (seatsPerRow + 63) >>> 6;
+        occupied = new long[numRows][wordsPerRow];
+        held = new long[numRows][wordsPerRow];
+        ticketTypes = new byte[numRows * seatsPerRow];
+        
+        for (int i = 0; i < numRows; i++) {
+            String rowData = lines.get(i);
+            for (int j = 0; j < seatsPerRow; j++) {
+                char seatType = rowData.charAt(j);
+                ticketTypes[i * seatsPerRow + j] = (byte) seatType;
+                if (seatType != '.') {
+                    occupied[i][j >>> 6] |= 1L << j;
+                }
+            }
+        }
+    }
+    
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+    
+    @Override
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+    
+    @Override
+    public boolean isReserved(int row, int seat) {
+        return ((occupied[row - 1][seat >>> 6] & ~held[row - 1][seat >>> 6]) & (1L << seat)) != 0;
+    }
+    
+    @Override
+    public boolean isHeld(int row, int seat) {
+        return (held[row - 1][seat >>> 6] & (1L << seat)) != 0;
+    }
+    
+    @Override
+    public char getTicketType(int row, int seat) {
+        return (char) ticketTypes[(row - 1) * seatsPerRow + seat];
+    }
+    
+    @Override
+    public void reserve(int row, int seat, char ticketType) {
+        occupied[row - 1][seat >>> 6] |= 1L << seat;
+        held[row - 1][seat >>> 6] &= ~(1L << seat);
+        ticketTypes[(row - 1) * seatsPerRow + seat] = (byte) ticketType;
+    }
+    
+    @Override
+    public void unreserve(int row, int seat) {
+        occupied[row - 1][seat >>> 6] &= ~(1L << seat);
+        ticketTypes[(row - 1) * seatsPerRow + seat] = OPEN;
+    }
+    
+    @Override
+    public void hold(int row, int seat) {
+        occupied[row - 1][seat >>> 6] |= 1L << seat;
+        held[row - 1][seat >>> 6] |= 1L << seat;
+    }
+    
+    @Override
+    public void release(int row, int seat) {
+        occupied[row - 1][seat >>> 6] &= ~(1L << seat);
+        held[row - 1][seat >>> 6] &= ~(1L << seat);
+    }
+    
+    //Tests the range one word at a time against a mask of the covered bits
+    @Override
+    public boolean isRangeFree(int row, int startSeat, int numberOfSeats) {
+        if (numberOfSeats <= 0) {
+            return true;
+        }
+        
+        long[] words = occupied[row - 1];
+        int endSeat = startSeat + numberOfSeats - 1;
+        int firstWord = startSeat >>> 6;
+        int lastWord = endSeat >>> 6;
+        
+        for (int w = firstWord; w <= lastWord; w++) {
+            long mask = -1L;
+            if (w == firstWord) {
+                mask &= -1L << startSeat;
+            }
+            if (w == lastWord) {
+                mask &= -1L >>> (63 - (endSeat & 63));
+            }
+            if ((words[w] & mask) != 0) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    //Skips whole words that are completely free or completely reserved and
+    //only inspects individual bits in words that mix both
+    @Override
+    public int getLongestFreeRun(int row) {
+        long[] words = occupied[row - 1];
+        int longest = 0;
+        int runLength = 0;
+        
+        for (int w = 0; w < wordsPerRow; w++) {
+            int bitsInWord = Math.min(64, seatsPerRow - (w << 6));
+            long word = words[w];
+            
+            if (word == 0) {
+                runLength += bitsInWord;
+            } else if (bitsInWord == 64 && word == -1L) {
+                runLength = 0;
+            } else {
+                for (int b = 0; b < bitsInWord; b++) {
+                    runLength = (word & (1L << b)) != 0 ? 0 : runLength + 1;
+                    longest = Math.max(longest, runLength);
+                }
+            }
+            longest = Math.max(longest, runLength);
+        }
+        
+        return longest;
+    }
+    
+    //Finds the nearest occupied seat on each side of the range a word at a time
+    @Override
+    public int getFreeRunAround(int row, int startSeat, int numberOfSeats) {
+        long[] words = occupied[row - 1];
+        return nextOccupied(words, startSeat + numberOfSeats) - previousOccupied(words, startSeat - 1) - 1;
+    }
+    
+    //Returns the first occupied seat at or after a seat, or seatsPerRow if there is none
+    private int nextOccupied(long[] words, int seat) {
+        if (seat >= seatsPerRow) {
+            return seatsPerRow;
+        }
+        
+        int w = seat >>> 6;
+        long word = words[w] & (-1L << seat);
+        while (word == 0) {
+            if (++w == wordsPerRow) {
+                return seatsPerRow;
+            }
+            word = words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+    
+    //Returns the last occupied seat at or before a seat, or -1 if there is none
+    private static int previousOccupied(long[] words, int seat) {
+        if (seat < 0) {
+            return -1;
+        }
+        
+        int w = seat >>> 6;
+        long word = words[w] & (-1L >>> (63 - (seat & 63)));
+        while (word == 0) {
+            if (--w < 0) {
+                return -1;
+            }
+            word = words[w];
+        }
+        return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+    }
+    
+    //Finds run starts by repeatedly AND-ing the free mask with a shifted copy
+    //of itself, doubling the run length covered by each bit until it reaches
+    //the requested number of seats
+    @Override
+    public long[] findRunStarts(int row, int numberOfSeats) {
+        long[] runs = new long[wordsPerRow];
+        long[] words = occupied[row - 1];
+        
+        //Start with every free seat inside the row
+        for (int w = 0; w < wordsPerRow; w++) {
+            runs[w] = ~words[w];
+        }
+        int tailBits = seatsPerRow & 63;
+        if (tailBits != 0) {
+            runs[wordsPerRow - 1] &= (1L << tailBits) - 1;
+        }
+        
+        //Each bit now covers a run of length 1
+        long[] shifted = new long[wordsPerRow];
+        int covered = 1;
+        while (covered < numberOfSeats) {
+            int shift = Math.min(covered, numberOfSeats - covered);
+            shiftDown(runs, shift, shifted);
+            for (int w = 0; w < wordsPerRow; w++) {
+                runs[w] &= shifted[w];
+            }
+            covered += shift;
+        }
+        
+        return runs;
+    }
+    
+    //Shifts a multi-word bit set so that bit i of the result is bit i + shift
+    //of the source, filling vacated high bits with zeros
+    private static void shiftDown(long[] source, int shift, long[] result) {
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+        
+        for (int w = 0; w < result.length; w++) {
+            int from = w + wordShift;
+            long low = from < source.length ? source[from] : 0L;
+            long high = from + 1 < source.length ? source[from + 1] : 0L;
+            result[w] = bitShift == 0 ? low : (low >>> bitShift) | (high << (64 - bitShift));
+        }
+    }
+}
@@ -0,0 +1,386 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+//Reservation operations shared by the interactive menus and the batch mode.
+//Every change to an order goes through here, so the auditorium, the customer,
+//the reservation journal and the order store are always updated together.
+//Customers are not thread-safe themselves, so every change to a customer's
+//orders is made while holding the customer's lock, and sessions that read
+//the orders of a customer hold the same lock.
+//A change the journal or the order store cannot make durable is refused:
+//releases are written before any seat is released, and seats reserved for
+//a change that fails to be written are released again before the
+//IOException is passed on.
+public class BoxOffice {
+    //Auditoriums of the theater, auditorium 1 at index 0
+    private Auditorium[] auditoriums;
+    //Customers by username
+    private ConcurrentHashmap userMap;
+    //Journal that makes order changes durable, null when disabled
+    private ReservationJournal journal;
+    //Store that keeps orders between runs, null when disabled
+    private OrderStore orderStore;
+    
+    //Constructor wraps the loaded auditoriums, customers and opened stores
+    public BoxOffice(Auditorium[] auditoriums, ConcurrentHashmap userMap,
+        ReservationJournal journal, OrderStore orderStore) {
+        this.auditoriums = auditoriums;
+        this.userMap = userMap;
+        this.journal = journal;
+        this.orderStore = orderStore;
+    }
+    
+    //Returns an auditorium by its number (1-3)
+    public Auditorium getAuditorium(int auditoriumNumber) {
+        return auditoriums[auditoriumNumber - 1];
+    }
+    
+    //Returns the number of auditoriums
+    public int getAuditoriumCount() {
+        return auditoriums.length;
+    }
+    
+    //Returns the customer with a username, or null if there is none
+    public Customer getCustomer(String username) {
+        return userMap.get(username);
+    }
+    
+    //Returns the customer if the username and password match, or null otherwise
+    //The customer's stored orders are loaded on their first login
+    public Customer login(String username, String password) {
+        Customer customer = userMap.get(username);
+        if (customer == null || !customer.getPassword().equals(password)) {
+            return null;
+        }
+        loadStoredOrders(customer);
+        return customer;
+    }
+    
+    //Loads a customer's stored orders on their first login, if the order store is enabled
+    public void loadStoredOrders(Customer customer) {
+        if (orderStore == null) {
+            return;
+        }
+        
+        try {
+            ReentrantLock lock = customer.getLock();
+            lock.lock();
+            try {
+                orderStore.loadOrders(customer, auditoriums);
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading orders: " + e.getMessage());
+        }
+    }
+    
+    //Returns the username of the customer holding a seat, or null if no order holds it
+    //Seats of stored orders whose customer has not logged in yet have no owner in
+    //the auditorium, so those are looked up in the order store
+    public String findSeatHolder(int auditoriumNumber, int row, int seat) {
+        Customer.Order owner = getAuditorium(auditoriumNumber).getSeatOwner(row, seat);
+        if (owner != null) {
+            return owner.getCustomer().getUsername();
+        }
+        if (orderStore == null) {
+            return null;
+        }
+        
+        try {
+            return orderStore.findHolder(auditoriumNumber, row, seat);
+        } catch (IOException e) {
+            System.err.println("Error reading orders: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    //Reserves a block of seats for a new order of the customer
+    //Returns the new order, or null without reserving anything if any seat is taken
+    public Customer.Order reserve(Customer customer, int auditoriumNumber, int row, int startSeat,
+        int adultTickets, int childTickets, int seniorTickets) throws IOException {
+        Customer.Order order = customer.newOrder(auditoriumNumber, row, startSeat,
+            adultTickets, childTickets, seniorTickets);
+        if (!getAuditorium(auditoriumNumber).reserveIfAvailable(row, startSeat,
+            adultTickets, childTickets, seniorTickets, order)) {
+            return null;
+        }
+        
+        recordNewOrder(order, adultTickets, childTickets, seniorTickets);
+        return order;
+    }
+    
+    //Reserves several blocks of seats in one auditorium as one new order each
+    //Each block becomes a new order of the customer, built here from the block's
+    //row, start seat and ticket types, so the owners set on the given blocks are
+    //ignored. The seats get the block's ticket types in the order given.
+    //Returns the new orders in block order once every one is reserved and added,
+    //or null without reserving anything if any block is invalid or taken.
+    //The whole group is written as one journal record and one store record, so
+    //a crash never keeps part of it
+    public List<Customer.Order> reserveGroup(Customer customer, int auditoriumNumber, List<SeatBlock> blocks)
+        throws IOException {
+        List<SeatBlock> ownedBlocks = new ArrayList<>(blocks.size());
+        List<Customer.Order> orders = new ArrayList<>(blocks.size());
+        for (SeatBlock block : blocks) {
+            Customer.Order order = customer.newOrder(auditoriumNumber, block.getRow(), block.getStartSeat(),
+                block.getTicketCount('A'), block.getTicketCount('C'), block.getTicketCount('S'));
+            ownedBlocks.add(new SeatBlock(block.getRow(), block.getStartSeat(), block.getTicketTypes(), order));
+            orders.add(order);
+        }
+        
+        //Rejects blocks with ticket types other than A, C or S, so the counts above cover every seat
+        Auditorium auditorium = getAuditorium(auditoriumNumber);
+        if (!auditorium.reserveBlocks(ownedBlocks)) {
+            return null;
+        }
+        
+        ReentrantLock lock = customer.getLock();
+        lock.lock();
+        try {
+            try {
+                if (journal != null) {
+                    journal.logNewGroup(customer, auditoriumNumber, ownedBlocks);
+                }
+                storeGroup(orders, auditorium);
+            } catch (IOException e) {
+                for (Customer.Order order : orders) {
+                    releaseSeats(order);
+                }
+                throw e;
+            }
+            for (Customer.Order order : orders) {
+                customer.addOrder(order);
+            }
+            return orders;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Turns held seats into a new order of the customer
+    //Returns the new order, or null if the hold already expired or was released
+    public Customer.Order confirmHold(Customer customer, int auditoriumNumber, SeatHold hold,
+        int adultTickets, int childTickets, int seniorTickets) throws IOException {
+        Customer.Order order = customer.newOrder(auditoriumNumber, hold.getRow(), hold.getStartSeat(),
+            adultTickets, childTickets, seniorTickets);
+        if (!getAuditorium(auditoriumNumber).confirmHold(hold, adultTickets, childTickets, seniorTickets, order)) {
+            return null;
+        }
+        
+        recordNewOrder(order, adultTickets, childTickets, seniorTickets);
+        return order;
+    }
+    
+    //Adds a block of seats to an existing order
+    //Returns false without reserving anything if any seat is taken, or if the
+    //order was cancelled or emptied meanwhile by another session
+    public boolean addTickets(Customer.Order order, int row, int startSeat,
+        int adultTickets, int childTickets, int seniorTickets) throws IOException {
+        int totalTickets = adultTickets + childTickets + seniorTickets;
+        ReentrantLock lock = order.getCustomer().getLock();
+        lock.lock();
+        try {
+            Auditorium auditorium = getAuditorium(order.getAuditoriumNumber());
+            if (!order.isListed() || !auditorium.reserveIfAvailable(row, startSeat,
+                adultTickets, childTickets, seniorTickets, order)) {
+                return false;
+            }
+            
+            if (journal != null) {
+                try {
+                    journal.logAddTickets(order, row, startSeat, adultTickets, childTickets, seniorTickets);
+                } catch (IOException e) {
+                    for (int i = 0; i < totalTickets; i++) {
+                        auditorium.unreserveSeat(row, startSeat + i, order);
+                    }
+                    throw e;
+                }
+            }
+            order.addTickets(row, startSeat, totalTickets, adultTickets, childTickets, seniorTickets);
+            try {
+                storeOrder(order);
+            } catch (IOException e) {
+                //Take the tickets back out of the order before their seats are released
+                for (int i = 0; i < totalTickets; i++) {
+                    order.removeSeat(row, startSeat + i);
+                    auditorium.unreserveSeat(row, startSeat + i, order);
+                }
+                for (int i = 0; i < adultTickets; i++) {
+                    order.removeAdultTicket();
+                }
+                for (int i = 0; i < childTickets; i++) {
+                    order.removeChildTicket();
+                }
+                for (int i = 0; i < seniorTickets; i++) {
+                    order.removeSeniorTicket();
+                }
+                throw e;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Removes one seat from an order, removing the order once it has no tickets left
+    //Returns false if the seat is not part of the order
+    public boolean deleteSeat(Customer.Order order, int row, int seat) throws IOException {
+        ReentrantLock lock = order.getCustomer().getLock();
+        lock.lock();
+        try {
+            if (!order.containsSeat(row, seat)) {
+                return false;
+            }
+            
+            //Log the deletion before the seat is released
+            if (journal != null) {
+                journal.logDeleteSeat(order, row, seat);
+            }
+            
+            //Store the order without the seat before the seat is released
+            Auditorium auditorium = getAuditorium(order.getAuditoriumNumber());
+            char ticketType = auditorium.getSeatType(row, seat);
+            order.removeSeat(row, seat);
+            try {
+                storeOrder(order);
+            } catch (IOException e) {
+                order.getSeats().add(row, seat);
+                throw e;
+            }
+            
+            //Unreserve seat and update order
+            auditorium.unreserveSeat(row, seat, order);
+            switch (ticketType) {
+                case 'A': order.removeAdultTicket(); break;
+                case 'C': order.removeChildTicket(); break;
+                case 'S': order.removeSeniorTicket(); break;
+            }
+            
+            //Remove order if no tickets remain
+            if (order.getTotalTickets() == 0) {
+                order.getCustomer().removeOrder(order);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Cancels an entire order and unreserves all its seats
+    //Does nothing if the order was already cancelled by another session
+    public void cancel(Customer.Order order) throws IOException {
+        ReentrantLock lock = order.getCustomer().getLock();
+        lock.lock();
+        try {
+            if (!order.isListed()) {
+                return;
+            }
+            
+            Auditorium auditorium = getAuditorium(order.getAuditoriumNumber());
+            
+            //Log the cancellation before the seats are released
+            if (journal != null) {
+                journal.logCancel(order);
+            }
+            deleteStoredOrder(order);
+            
+            //Unreserve every seat the order still owns
+            SeatSet seats = order.getSeats();
+            for (int i = 0; i < seats.size(); i++) {
+                int code = seats.getCode(i);
+                auditorium.unreserveSeat(SeatSet.rowOf(code), SeatSet.seatOf(code), order);
+            }
+            seats.clear();
+            
+            order.getCustomer().removeOrder(order);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Saves all auditorium states to files.
+    //Creates files A1Final.txt, A2Final.txt, and A3Final.txt.
+    //Mapped layouts are already current and are only flushed to disk.
+    public void saveAuditoriums() {
+        for (int i = 0; i < auditoriums.length; i++) {
+            auditoriums[i].flush();
+            auditoriums[i].saveToFile("A" + (i + 1) + "Final.txt");
+        }
+    }
+    
+    //Closes the journal and order store, if they are enabled
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+        if (orderStore != null) {
+            try {
+                orderStore.close();
+            } catch (IOException e) {
+                System.err.println("Error closing order store: " + e.getMessage());
+            }
+        }
+    }
+    
+    //Records a newly reserved order in the stores and adds it to its customer
+    //If the stores cannot record it, its seats are released and it is not added
+    private void recordNewOrder(Customer.Order order, int adultTickets, int childTickets, int seniorTickets)
+        throws IOException {
+        ReentrantLock lock = order.getCustomer().getLock();
+        lock.lock();
+        try {
+            try {
+                if (journal != null) {
+                    journal.logNewOrder(order, adultTickets, childTickets, seniorTickets);
+                }
+                storeOrder(order);
+            } catch (IOException e) {
+                releaseSeats(order);
+                throw e;
+            }
+            order.getCustomer().addOrder(order);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Releases every seat reserved for an order that was not recorded
+    private void releaseSeats(Customer.Order order) {
+        Auditorium auditorium = getAuditorium(order.getAuditoriumNumber());
+        SeatSet seats = order.getSeats();
+        for (int i = 0; i < seats.size(); i++) {
+            int code = seats.getCode(i);
+            auditorium.unreserveSeat(SeatSet.rowOf(code), SeatSet.seatOf(code), order);
+        }
+    }
+    
+    //Writes the current seats of an order to the order store, if it is enabled
+    //An order without seats is deleted from the store instead
+    private void storeOrder(Customer.Order order) throws IOException {
+        if (orderStore == null) {
+            return;
+        }
+        
+        if (order.getSeats().isEmpty()) {
+            orderStore.delete(order);
+        } else {
+            orderStore.save(order, getAuditorium(order.getAuditoriumNumber()));
+        }
+    }
+    
+    //Writes the new orders of a group to the order store as one record, if it is enabled
+    private void storeGroup(List<Customer.Order> orders, Auditorium auditorium) throws IOException {
+        if (orderStore != null) {
+            orderStore.saveGroup(orders, auditorium);
+        }
+    }
+    
+    //Removes a cancelled order from the order store, if it is enabled
+    private void deleteStoredOrder(Customer.Order order) throws IOException {
+        if (orderStore != null) {
+            orderStore.delete(order);
+        }
+    }
+}
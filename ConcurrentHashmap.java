@@ -0,0 +1,141 @@
+import java.util.concurrent.locks.*;
+
+//Thread-safe hash table from usernames to customers for concurrent sessions.
+//The table is split into segments that each have their own lock, so writers
+//only contend when they hit the same segment. Each segment is a Hashmap, so
+//entries live in open addressing tables with parallel arrays and a resize is
+//spread over the following writes instead of rehashing in one put.
+//Readers do not lock in the common case: a read takes an optimistic stamp from
+//the segment's StampedLock, probes the table without changing it, and only
+//retries under the read lock if a writer ran in the meantime.
+public class ConcurrentHashmap {
+    //Default number of entries the table is sized for
+    private static final int DEFAULT_SIZE = 16;
+    //Number of independently locked segments (a power of two)
+    private static final int SEGMENT_COUNT = 16;
+    //Multiplier used to spread hash codes across the segments (golden ratio)
+    private static final int SPREAD_MULTIPLIER = 0x9E3779B9;
+    
+    //Segments of the table, selected by the high bits of the spread hash
+    private Segment[] segments;
+    //Shift that moves the segment bits of a hash to the bottom
+    private int segmentShift;
+    
+    //Default constructor using default size
+    public ConcurrentHashmap() {
+        this(DEFAULT_SIZE);
+    }
+    
+    //Constructor with custom initial size
+    //The segments are sized so initialSize entries fit without growing
+    public ConcurrentHashmap(int initialSize) {
+        segments = new Segment[SEGMENT_COUNT];
+        segmentShift = 32 - Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+        
+        //Spread the expected entries evenly over the segments
+        int perSegment = initialSize / SEGMENT_COUNT + 1;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+    
+    //Inserts or updates a key-value pair in the hash table
+    public void put(String key, Customer value) {
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.table.put(key, value);
+            segment.count = segment.table.size();
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+    
+    //Retrieves the value associated with the given key, usually without locking
+    //Returns null if key is not found
+    public Customer get(String key) {
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.tryOptimisticRead();
+        Customer value = segment.table.peek(key);
+        if (segment.lock.validate(stamp)) {
+            return value;
+        }
+        
+        //A writer changed the segment during the read, so read again under the lock
+        stamp = segment.lock.readLock();
+        try {
+            return segment.table.peek(key);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+    
+    //Checks if the hash table contains the specified key, usually without locking
+    //Customers are never stored as null, so a key is present exactly when it has a value
+    public boolean containsKey(String key) {
+        return get(key) != null;
+    }
+    
+    //Removes the key-value pair for the specified key
+    public void remove(String key) {
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.table.remove(key);
+            segment.count = segment.table.size();
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+    
+    //Grows the segments so that expectedEntries entries fit without further growing
+    //Used before a bulk load, so the tables do not keep growing on the way up
+    public void ensureCapacity(int expectedEntries) {
+        int perSegment = expectedEntries / SEGMENT_COUNT + 1;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.writeLock();
+            try {
+                segment.table.ensureCapacity(perSegment);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+    
+    //Returns the number of key-value pairs in the hash table
+    //Writes running at the same time may or may not be included
+    public int size() {
+        int total = 0;
+        for (Segment segment : segments) {
+            total += segment.count;
+        }
+        return total;
+    }
+    
+    //Checks if the hash table is empty
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    //Returns the segment responsible for a key
+    //Uses the high bits of the spread hash, while each Hashmap uses the low bits
+    private Segment segmentFor(String key) {
+        int h = key.hashCode() * SPREAD_MULTIPLIER;
+        return segments[(h >>> segmentShift) & (SEGMENT_COUNT - 1)];
+    }
+    
+    //Independently locked part of the table
+    private static class Segment {
+        //Taken exclusively by writers, validated or shared by readers
+        final StampedLock lock = new StampedLock();
+        //Entries of this segment, only changed under the write lock
+        final Hashmap table;
+        //Number of entries in this segment
+        volatile int count;
+        
+        //Constructor creates an empty segment sized for the given number of entries
+        Segment(int expectedEntries) {
+            table = new Hashmap(expectedEntries);
+        }
+    }
+}
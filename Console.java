@@ -0,0 +1,120 @@
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+//Buffered console used by the menus in place of Scanner and System.out.
+//Input is read through one buffered reader and output collects in a buffer
+//that is only written out when the next read would have to wait for input,
+//so an interactive user always sees the prompt before typing while a piped
+//session is written in large blocks. Output goes through the given stream,
+//so the bytes are the same as printing to it directly.
+public class Console {
+    //Default size of the input and output buffers in characters
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    //Buffered source of input lines
+    private BufferedReader in;
+    //Buffered output, written to the stream when flushed
+    private PrintWriter out;
+    //Line read ahead by hasNextLine, null if none is waiting
+    private String nextLine = null;
+    //Whether the end of the input has been reached
+    private boolean ended = false;
+    //Number of lines returned by nextLine
+    private long linesRead = 0;
+    
+    //Constructor wraps the input and output streams of the console
+    public Console(InputStream input, PrintStream stream) {
+        this(input, stream, BUFFER_SIZE);
+    }
+    
+    //Constructor wraps the input and output streams with buffers of the given size
+    //Smaller buffers suit servers with many consoles open at once
+    public Console(InputStream input, PrintStream stream, int bufferSize) {
+        this.in = new BufferedReader(new InputStreamReader(input), bufferSize);
+        this.out = new PrintWriter(new BufferedWriter(new Writer() {
+            //Hands complete blocks to the stream, which encodes them as usual
+            public void write(char[] chars, int offset, int length) {
+                stream.append(CharBuffer.wrap(chars, offset, length));
+            }
+            
+            public void flush() {
+                stream.flush();
+            }
+            
+            public void close() {
+                stream.flush();
+            }
+        }, bufferSize));
+    }
+    
+    //Checks if another line of input is available, waiting for it if needed
+    //Pending output is flushed first whenever the read would block
+    public boolean hasNextLine() {
+        if (nextLine == null && !ended) {
+            try {
+                if (!in.ready()) {
+                    flush();
+                }
+                nextLine = in.readLine();
+            } catch (IOException e) {
+                nextLine = null;
+            }
+            ended = nextLine == null;
+        }
+        return nextLine != null;
+    }
+    
+    //Returns the next line of input without its line break
+    //Throws NoSuchElementException at the end of the input, as Scanner does
+    public String nextLine() {
+        if (!hasNextLine()) {
+            throw new NoSuchElementException("No line found");
+        }
+        String line = nextLine;
+        nextLine = null;
+        linesRead++;
+        return line;
+    }
+    
+    //Returns the number of input lines read so far
+    public long getLinesRead() {
+        return linesRead;
+    }
+    
+    //Prints text without a line break
+    public void print(CharSequence text) {
+        out.append(text);
+    }
+    
+    //Prints a single character
+    public void print(char c) {
+        out.print(c);
+    }
+    
+    //Prints part of a character array
+    public void print(char[] chars, int offset, int length) {
+        out.write(chars, offset, length);
+    }
+    
+    //Prints text followed by a line break
+    public void println(CharSequence text) {
+        out.append(text);
+        out.println();
+    }
+    
+    //Prints a line break
+    public void println() {
+        out.println();
+    }
+    
+    //Prints formatted text, as PrintStream.printf does
+    public void printf(String format, Object... args) {
+        out.printf(format, args);
+    }
+    
+    //Writes all pending output to the stream
+    public void flush() {
+        out.flush();
+    }
+}
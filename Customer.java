@@ -1,5 +1,6 @@
 
 import java.util.*;
+import java.util.concurrent.locks.*;
 public class Customer {
     //Customer's username for login
     private String username;
@@ -7,6 +8,10 @@ public class Customer {
     private String password;
     //List of all orders made by this customer
     private List<Order> orders;
+    //Running total of all listed orders in cents
+    private long totalCents;
+    //Held by sessions while they change or read this customer's orders
+    private final ReentrantLock lock = new ReentrantLock();
     
     //Constructor to create a new customer with username and password
     //Initializes the orders list as empty
@@ -26,29 +31,65 @@ public class Customer {
         return password;
     }
     
+    //Returns the lock that guards this customer's orders
+    //A ReentrantLock rather than the customer's monitor, so sessions on virtual
+    //threads that block while holding it do not pin their carrier thread
+    public ReentrantLock getLock() {
+        return lock;
+    }
+    
     //Returns the list of all orders made by this customer
     public List<Order> getOrders() {
         return orders;
     }
     
+    //Returns the total cost of all orders in cents
+    //Kept up to date as orders and tickets change, so nothing is recomputed
+    public long getTotalCents() {
+        return totalCents;
+    }
+    
+    //Creates a new order owned by this customer without adding it to the order list
+    //The order is passed to the auditorium as the owner of the seats it reserves
+    public Order newOrder(int auditoriumNumber, int row, int startSeat, 
+                        int adultTickets, int childTickets, int seniorTickets) {
+        return new Order(this, auditoriumNumber, row, startSeat, 
+                       adultTickets, childTickets, seniorTickets);
+    }
+    
     //Creates a new order and adds it to the customer's order list
     //This method is called when a customer successfully reserves seats
-    public void addOrder(int auditoriumNumber, int row, int startSeat, int totalTickets, 
-                       int adultTickets, int childTickets, int seniorTickets) {
-        Order newOrder = new Order(auditoriumNumber, row, startSeat, 
+    public Order addOrder(int auditoriumNumber, int row, int startSeat, int totalTickets, 
+                        int adultTickets, int childTickets, int seniorTickets) {
+        Order newOrder = newOrder(auditoriumNumber, row, startSeat, 
                                 adultTickets, childTickets, seniorTickets);
-        orders.add(newOrder);
+        addOrder(newOrder);
+        return newOrder;
+    }
+    
+    //Adds an order created by newOrder to the customer's order list
+    public void addOrder(Order order) {
+        orders.add(order);
+        order.listed = true;
+        totalCents += order.totalCents;
     }
     
     //Removes a specific order from the customer's order list
     //This is used when an order is cancelled completely
     public void removeOrder(Order order) {
-        orders.remove(order);
+        if (orders.remove(order)) {
+            order.listed = false;
+            totalCents -= order.totalCents;
+        }
     }
     
     //Order class represents a single ticket reservation for an auditorium
     //It tracks seat locations, ticket quantities, and allows for modifications
     public static class Order {
+        //Identifier assigned by the reservation journal, 0 if the order is not journaled
+        private long id;
+        //Customer who placed this order
+        private Customer customer;
         //Auditorium number where the seats are reserved (1-3)
         private int auditoriumNumber;
         //Row number where seats are located
@@ -61,23 +102,36 @@ public class Customer {
         private int childTickets;
         //Number of senior tickets in this order
         private int seniorTickets;
-        //List of additional seat groups added through order updates
-        private List<int[]> additionalSeats;
+        //Seats currently held by this order, kept in row-major order
+        private SeatSet seats;
         //Original total ticket count when order was first created
         private int originalTicketCount;
+        //Running total of this order in cents
+        private long totalCents;
+        //Whether the order is in its customer's order list and counted in its total
+        private boolean listed;
         
         //Constructor creates a new order with initial seat reservation and ticket counts
-        public Order(int auditoriumNumber, int row, int startSeat, 
+        public Order(Customer customer, int auditoriumNumber, int row, int startSeat, 
                    int adultTickets, int childTickets, int seniorTickets) {
+            this.customer = customer;
             this.auditoriumNumber = auditoriumNumber;
             this.row = row;
             this.startSeat = startSeat;
             this.adultTickets = adultTickets;
             this.childTickets = childTickets;
             this.seniorTickets = seniorTickets;
-            this.additionalSeats = new ArrayList<>();
+            this.seats = new SeatSet();
+            this.seats.addRange(row, startSeat, adultTickets + childTickets + seniorTickets);
             //Store the original ticket count for tracking changes
             this.originalTicketCount = adultTickets + childTickets + seniorTickets;
+            this.totalCents = Pricing.priceOf(auditoriumNumber, adultTickets, childTickets, seniorTickets);
+        }
+        
+        //Checks if the order is in its customer's order list
+        //Cancelled orders and orders emptied by deleting seats are not
+        public boolean isListed() {
+            return listed;
         }
         
         //Returns the original number of tickets when the order was first created
@@ -85,6 +139,26 @@ public class Customer {
             return originalTicketCount;
         }
         
+        //Sets the original ticket count of an order rebuilt from a journal snapshot
+        public void setOriginalTicketCount(int originalTicketCount) {
+            this.originalTicketCount = originalTicketCount;
+        }
+        
+        //Returns the journal identifier of this order
+        public long getId() {
+            return id;
+        }
+        
+        //Sets the journal identifier of this order
+        public void setId(long id) {
+            this.id = id;
+        }
+        
+        //Returns the customer who placed this order
+        public Customer getCustomer() {
+            return customer;
+        }
+        
         //Returns the auditorium number (1-3)
         public int getAuditoriumNumber() {
             return auditoriumNumber;
@@ -115,31 +189,49 @@ public class Customer {
             return seniorTickets;
         }
         
+        //Returns the current cost of this order in cents
+        public long getTotalCents() {
+            return totalCents;
+        }
+        
         //Calculates and returns the current total number of tickets
         //This may differ from originalTicketCount due to updates
         public int getTotalTickets() {
             return adultTickets + childTickets + seniorTickets;
         }
         
-        //Returns the list of additional seat groups added through order updates
-        public List<int[]> getAdditionalSeats() {
-            return additionalSeats;
+        //Returns the seats currently held by this order in row-major order
+        public SeatSet getSeats() {
+            return seats;
+        }
+        
+        //Checks if a seat belongs to this order
+        public boolean containsSeat(int row, int seat) {
+            return seats.contains(row, seat);
+        }
+        
+        //Removes a seat from this order, returns false if it is not part of it
+        //Ticket counts are updated separately by the remove*Ticket methods
+        public boolean removeSeat(int row, int seat) {
+            return seats.remove(row, seat);
         }
         
         //Adds additional tickets to the existing order
-        //Updates ticket counts and stores additional seat information
+        //Updates ticket counts and records the newly reserved seats
         public void addTickets(int row, int startSeat, int totalTickets, 
                              int adult, int child, int senior) {
-            additionalSeats.add(new int[]{row, startSeat, totalTickets});
+            seats.addRange(row, startSeat, totalTickets);
             adultTickets += adult;
             childTickets += child;
             seniorTickets += senior;
+            adjustTotal(Pricing.priceOf(auditoriumNumber, adult, child, senior));
         }
         
         //Removes one adult ticket from the order if any exist
         public void removeAdultTicket() {
             if (adultTickets > 0) {
                 adultTickets--;
+                adjustTotal(-Pricing.getPriceCents(auditoriumNumber, 'A'));
             }
         }
         
@@ -147,6 +239,7 @@ public class Customer {
         public void removeChildTicket() {
             if (childTickets > 0) {
                 childTickets--;
+                adjustTotal(-Pricing.getPriceCents(auditoriumNumber, 'C'));
             }
         }
         
@@ -154,6 +247,15 @@ public class Customer {
         public void removeSeniorTicket() {
             if (seniorTickets > 0) {
                 seniorTickets--;
+                adjustTotal(-Pricing.getPriceCents(auditoriumNumber, 'S'));
+            }
+        }
+        
+        //Changes the order total and, once the order is listed, the customer total
+        private void adjustTotal(long deltaCents) {
+            totalCents += deltaCents;
+            if (listed) {
+                customer.totalCents += deltaCents;
             }
         }
     }
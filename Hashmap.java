@@ -1,19 +1,43 @@
-
-import java.util.LinkedList;
-
-
+//Hash table from usernames to customers using open addressing.
+//Keys and values live in parallel arrays and collisions are resolved by
+//linear probing, so a lookup usually touches one or two adjacent slots.
+//Growing the table is incremental: the old and new tables stay live and
+//every operation moves a bounded number of old slots across, so no single
+//put pays for copying the whole table.
+//The table itself is not thread-safe; ConcurrentHashmap uses one table per
+//lock stripe and reads it through peek.
 public class Hashmap {
-    //Default initial size of the hash table
-    private static final int DEFAULT_SIZE = 5;
-    //Threshold for rehashing - when average chain length exceeds this value
-    private static final double LOAD_FACTOR_THRESHOLD = 2.0;
-    
-    //Array of linked lists to handle collisions through chaining
-    private LinkedList<Entry>[] buckets;
-    //Current size of the hash table (number of buckets)
-    private int size;
-    //Total number of key-value pairs stored
+    //Default initial capacity of the hash table
+    private static final int DEFAULT_SIZE = 16;
+    //Largest capacity the table can grow to (a power of two)
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    //Multiplier used to spread hash codes across the table (golden ratio)
+    private static final int SPREAD_MULTIPLIER = 0x9E3779B9;
+    //Number of old table slots migrated by each operation during a resize
+    //With a load threshold of 3/4 this finishes long before the new table fills
+    private static final int MIGRATE_SLOTS_PER_OPERATION = 16;
+    //Marker left in old table slots whose entry was moved or removed
+    //Compared by identity, so it can never match a real key
+    private static final String MOVED = new String("<moved>");
+    
+    //Keys stored in the table, null marks an empty slot
+    private String[] keys;
+    //Values stored in the table, parallel to keys
+    private Customer[] values;
+    //Mask for mapping a hash to a slot (capacity is a power of two)
+    private int mask;
+    //Number of entries at which the table grows (three quarters of capacity)
+    private int threshold;
+    //Total number of key-value pairs stored in both tables
     private int numEntries;
+    //Table being migrated during a resize, null when no resize is running
+    private String[] oldKeys;
+    //Values of the table being migrated, parallel to oldKeys
+    private Customer[] oldValues;
+    //Mask of the table being migrated
+    private int oldMask;
+    //Next old table slot to migrate
+    private int migrateIndex;
     
     //Default constructor using default size
     public Hashmap() {
@@ -21,84 +45,131 @@ public class Hashmap {
     }
     
     //Constructor with custom initial size
-    //Suppresses unchecked warning for creating array of generic types
-    @SuppressWarnings("unchecked")
+    //The table is sized so initialSize entries fit without growing
     public Hashmap(int initialSize) {
-        buckets = new LinkedList[initialSize];
-        //Initialize each bucket with an empty linked list
-        for (int i = 0; i < buckets.length; i++) {
-            buckets[i] = new LinkedList<>();
-        }
-        size = initialSize;
+        allocate(capacityFor(initialSize));
         numEntries = 0;
     }
     
     //Inserts or updates a key-value pair in the hash table
     public void put(String key, Customer value) {
-        //Check if load factor exceeds threshold and rehash if needed
-        if (getLoadFactor() > LOAD_FACTOR_THRESHOLD) {
-            rehash();
+        migrateStep();
+        
+        //Key still waiting in the old table, update it there
+        int oldIndex = findOldSlot(key);
+        if (oldIndex >= 0) {
+            oldValues[oldIndex] = value;
+            return;
         }
         
-        //Calculate the bucket index for this key
-        int index = getIndex(key);
+        int index = findSlot(key);
         
-        //Check if key already exists and update value if found
-        for (Entry entry : buckets[index]) {
-            if (entry.key.equals(key)) {
-                entry.value = value;
-                return;
-            }
+        //Key already exists, update its value
+        if (keys[index] != null) {
+            values[index] = value;
+            return;
         }
         
-        //Key doesn't exist, add new entry to the bucket
-        buckets[index].add(new Entry(key, value));
+        //Key doesn't exist, add new entry in the empty slot
+        keys[index] = key;
+        values[index] = value;
         numEntries++;
+        
+        //Start growing the table once it is three quarters full
+        if (numEntries > threshold && keys.length < MAXIMUM_CAPACITY) {
+            startResize(keys.length * 2);
+        }
     }
     
     //Retrieves the value associated with the given key
     //Returns null if key is not found
     public Customer get(String key) {
-        int index = getIndex(key);
+        migrateStep();
         
-        //Search through the bucket for the key
-        for (Entry entry : buckets[index]) {
-            if (entry.key.equals(key)) {
-                return entry.value;
-            }
+        int oldIndex = findOldSlot(key);
+        if (oldIndex >= 0) {
+            return oldValues[oldIndex];
         }
         
-        //Key not found
-        return null;
+        int index = findSlot(key);
+        return keys[index] != null ? values[index] : null;
     }
     
-    //Checks if the hash table contains the specified key
-    public boolean containsKey(String key) {
-        int index = getIndex(key);
-        
-        //Search through the bucket for the key
-        for (Entry entry : buckets[index]) {
-            if (entry.key.equals(key)) {
-                return true;
+    //Retrieves the value for a key without migrating any slots, so nothing changes
+    //May run while another thread changes the table, as long as the caller throws
+    //the result away when it detects the change (ConcurrentHashmap validates it
+    //against its lock stamp). Every array is read once and every probe is
+    //bounded, so a torn view can only give a wrong answer, never an exception
+    //Returns null if key is not found
+    public Customer peek(String key) {
+        String[] currentOldKeys = oldKeys;
+        Customer[] currentOldValues = oldValues;
+        if (currentOldKeys != null && currentOldValues != null) {
+            int oldIndex = probe(currentOldKeys, key);
+            if (oldIndex >= 0 && oldIndex < currentOldValues.length) {
+                return currentOldValues[oldIndex];
             }
         }
         
-        //Key not found
-        return false;
+        String[] currentKeys = keys;
+        Customer[] currentValues = values;
+        int index = probe(currentKeys, key);
+        return index >= 0 && index < currentValues.length ? currentValues[index] : null;
+    }
+    
+    //Checks if the hash table contains the specified key
+    public boolean containsKey(String key) {
+        migrateStep();
+        return findOldSlot(key) >= 0 || keys[findSlot(key)] != null;
     }
     
     //Removes the key-value pair for the specified key
     public void remove(String key) {
-        int index = getIndex(key);
-        
-        //Search and remove entry if found
-        for (int i = 0; i < buckets[index].size(); i++) {
-            Entry entry = buckets[index].get(i);
-            if (entry.key.equals(key)) {
-                buckets[index].remove(i);
-                numEntries--;
-                return;
+        migrateStep();
+        
+        //Entries in the old table are replaced by a marker so the probe
+        //sequences of entries that have not been migrated stay intact
+        int oldIndex = findOldSlot(key);
+        if (oldIndex >= 0) {
+            oldKeys[oldIndex] = MOVED;
+            oldValues[oldIndex] = null;
+            numEntries--;
+            return;
+        }
+        
+        int index = findSlot(key);
+        if (keys[index] == null) {
+            return;
+        }
+        
+        keys[index] = null;
+        values[index] = null;
+        numEntries--;
+        
+        //Shift later entries of the probe sequence back into the gap so every
+        //remaining key is still reachable without leaving tombstones behind
+        int gap = index;
+        int current = (index + 1) & mask;
+        while (keys[current] != null) {
+            int home = getIndex(keys[current], mask);
+            //Move the entry if its home slot is not between the gap and its position
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                keys[current] = null;
+                values[current] = null;
+                gap = current;
             }
+            current = (current + 1) & mask;
+        }
+    }
+    
+    //Grows the table so that expectedEntries entries fit without growing again
+    //The entries are moved across by the following operations, as in any resize
+    public void ensureCapacity(int expectedEntries) {
+        int capacity = capacityFor(expectedEntries);
+        if (capacity > keys.length) {
+            startResize(capacity);
         }
     }
     
@@ -112,56 +183,133 @@ public class Hashmap {
         return numEntries == 0;
     }
     
-    //Calculates the bucket index for a given key using hash function
-    //Uses modulo to ensure index is within bounds
-    private int getIndex(String key) {
-        return Math.abs(key.hashCode()) % size;
+    //Checks if a resize is currently migrating entries to the larger table
+    public boolean isResizing() {
+        return oldKeys != null;
     }
     
-    //Calculates the load factor (average chain length)
-    //Used to determine when to rehash the table
-    private double getLoadFactor() {
-        if (size == 0) return 0;
-        return (double) numEntries / size;
+    //Returns the fraction of the old table migrated by the running resize
+    //Returns 1.0 when no resize is running
+    public double getResizeProgress() {
+        if (oldKeys == null) {
+            return 1.0;
+        }
+        return (double) migrateIndex / oldKeys.length;
     }
     
-    //Rehashes the table when load factor exceeds threshold
-    //Doubles the size of the hash table and redistributes all entries
-    @SuppressWarnings("unchecked")
-    private void rehash() {
-        //Create a larger hash table
-        int newSize = size * 2;
-        LinkedList<Entry>[] oldBuckets = buckets;
-        
-        //Create new array with doubled size
-        buckets = new LinkedList[newSize];
-        for (int i = 0; i < buckets.length; i++) {
-            buckets[i] = new LinkedList<>();
+    //Returns the slot holding the key in the current table,
+    //or the empty slot where it would be inserted
+    private int findSlot(String key) {
+        int index = getIndex(key, mask);
+        while (keys[index] != null && !keys[index].equals(key)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+    
+    //Returns the slot holding the key in the table being migrated, or -1
+    //Moved markers are probed past since they may sit inside a probe sequence
+    private int findOldSlot(String key) {
+        if (oldKeys == null) {
+            return -1;
         }
         
-        //Update size and reset entry count
-        size = newSize;
-        numEntries = 0;
-        
-        //Reinsert all entries from old table into new table
-        for (LinkedList<Entry> bucket : oldBuckets) {
-            for (Entry entry : bucket) {
-                put(entry.key, entry.value);
+        int index = getIndex(key, oldMask);
+        while (oldKeys[index] != null) {
+            if (oldKeys[index] != MOVED && oldKeys[index].equals(key)) {
+                return index;
             }
+            index = (index + 1) & oldMask;
         }
+        return -1;
     }
     
-    //Private inner class to represent key-value pairs
-    private static class Entry {
-        //Key for the hash table entry
-        String key;
-        //Value associated with the key
-        Customer value;
+    //Returns the slot holding the key in a key array, or -1
+    //Looks at each slot at most once, so it ends even on a table being changed
+    private static int probe(String[] table, String key) {
+        int tableMask = table.length - 1;
+        int index = getIndex(key, tableMask);
+        for (int i = 0; i < table.length; i++) {
+            String slot = table[index];
+            if (slot == null) {
+                return -1;
+            }
+            if (slot != MOVED && slot.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & tableMask;
+        }
+        return -1;
+    }
+    
+    //Calculates the home slot for a given key in a table with the given mask
+    //Mixes the high bits of the hash code into the low bits used by the mask
+    private static int getIndex(String key, int tableMask) {
+        int h = key.hashCode() * SPREAD_MULTIPLIER;
+        return (h ^ (h >>> 16)) & tableMask;
+    }
+    
+    //Returns the smallest power of two capacity that holds the given number
+    //of entries below the load threshold
+    private static int capacityFor(int expectedEntries) {
+        long needed = Math.max(2L, (long) expectedEntries * 4 / 3 + 1);
+        if (needed >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+    
+    //Creates empty key and value arrays with the given power of two capacity
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        values = new Customer[capacity];
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+    }
+    
+    //Starts growing the table to the given power of two capacity
+    //The current table becomes the old table and is migrated step by step
+    private void startResize(int capacity) {
+        //Never run two resizes at once
+        while (oldKeys != null) {
+            migrateStep();
+        }
+        
+        oldKeys = keys;
+        oldValues = values;
+        oldMask = mask;
+        migrateIndex = 0;
+        allocate(capacity);
+    }
+    
+    //Moves the next few old table slots into the current table
+    private void migrateStep() {
+        if (oldKeys == null) {
+            return;
+        }
+        
+        int end = Math.min(migrateIndex + MIGRATE_SLOTS_PER_OPERATION, oldKeys.length);
+        for (int i = migrateIndex; i < end; i++) {
+            String key = oldKeys[i];
+            if (key != null && key != MOVED) {
+                int index = getIndex(key, mask);
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+                
+                //Keep the slot occupied so later probes in the old table pass it
+                oldKeys[i] = MOVED;
+                oldValues[i] = null;
+            }
+        }
+        migrateIndex = end;
         
-        //Constructor to create a new entry
-        Entry(String key, Customer value) {
-            this.key = key;
-            this.value = value;
+        //Drop the old table once every slot has been moved
+        if (migrateIndex == oldKeys.length) {
+            oldKeys = null;
+            oldValues = null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+import java.util.*;
+
+//Hashed timer wheel that tracks seat hold deadlines.
+//Each hold is pushed onto the slot for its deadline tick, so scheduling is
+//O(1) and advancing the wheel only visits the slots for the elapsed ticks.
+//Holds that end early are left in place and dropped when their slot is
+//visited, which keeps confirming or releasing a hold O(1) as well.
+public class HoldTimerWheel {
+    //Length of one tick in milliseconds
+    private long tickMillis;
+    //Slots of the wheel, each the head of a singly linked list of holds
+    private SeatHold[] slots;
+    //Mask for mapping a tick to its slot (slot count is a power of two)
+    private int mask;
+    //Time the wheel started, tick 0 begins here
+    private long startMillis;
+    //Last tick whose slot has been processed
+    private long currentTick;
+    //Time at which the next tick is due, read without locking as a fast path
+    private volatile long nextTickMillis;
+    
+    //Constructor creates a wheel with the given tick length and slot count
+    //The slot count is rounded up to a power of two
+    public HoldTimerWheel(long tickMillis, int slotCount, long nowMillis) {
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.slots = new SeatHold[size];
+        this.mask = size - 1;
+        this.startMillis = nowMillis;
+        this.currentTick = 0;
+        this.nextTickMillis = nowMillis + tickMillis;
+    }
+    
+    //Returns the tick at which a hold lasting ttlMillis from now expires
+    //Rounds up so a hold never expires before its time to live has passed
+    public long deadlineTick(long nowMillis, long ttlMillis) {
+        long elapsed = nowMillis - startMillis + ttlMillis;
+        return (elapsed + tickMillis - 1) / tickMillis;
+    }
+    
+    //Adds a hold to the slot for its deadline tick
+    public synchronized void schedule(SeatHold hold) {
+        //A deadline already passed is handled on the next tick
+        long tick = Math.max(hold.getDeadlineTick(), currentTick + 1);
+        int slot = (int) (tick & mask);
+        hold.nextInSlot = slots[slot];
+        slots[slot] = hold;
+    }
+    
+    //Checks if at least one tick has elapsed since the wheel was last advanced
+    public boolean isDue(long nowMillis) {
+        return nowMillis >= nextTickMillis;
+    }
+    
+    //Processes every tick up to the current time
+    //Returns the holds that reached their deadline and are still active
+    public synchronized List<SeatHold> advance(long nowMillis) {
+        List<SeatHold> expired = new ArrayList<>();
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        if (targetTick <= currentTick) {
+            return expired;
+        }
+        
+        //After a long pause every slot is due, so visit each one only once
+        long ticksToVisit = Math.min(targetTick - currentTick, slots.length);
+        for (long i = 1; i <= ticksToVisit; i++) {
+            int slot = (int) ((currentTick + i) & mask);
+            SeatHold previous = null;
+            SeatHold hold = slots[slot];
+            
+            while (hold != null) {
+                SeatHold next = hold.nextInSlot;
+                boolean due = hold.getDeadlineTick() <= targetTick;
+                
+                //Unlink holds that are due or already confirmed or released
+                if (due || !hold.isActive()) {
+                    if (previous == null) {
+                        slots[slot] = next;
+                    } else {
+                        previous.nextInSlot = next;
+                    }
+                    hold.nextInSlot = null;
+                    if (due && hold.isActive()) {
+                        expired.add(hold);
+                    }
+                } else {
+                    previous = hold;
+                }
+                hold = next;
+            }
+        }
+        
+        currentTick = targetTick;
+        nextTickMillis = startMillis + (targetTick + 1) * tickMillis;
+        return expired;
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.*;
+
+//Seat grid backed by the 2D linked list of nodes.
+//Each node links to its right neighbor and the node directly below it.
+public class LinkedSeatGrid implements SeatGrid {
+    //Reference to the first node (top-left corner) of the grid
+    private Node first;
+    //Total number of rows in the grid
+    private int numRows;
+    //Total number of seats per row
+    private int seatsPerRow;
+    //Direct index of every node in row-major order for constant time seat lookup
+    private Node[] seatNodes;
+    
+    //Builds the linked grid from the text rows of a layout file
+    //Each character is a ticket type (A, C, S) or '.' for an open seat
+    public LinkedSeatGrid(List<String> lines) {
+        //Set dimensions based on file content
+        numRows = lines.size();
+        if (numRows > 0) {
+            seatsPerRow = lines.get(0).length();
+        }
+        
+        //Build the 2D linked list structure
+        first = null;
+        Node previousRow = null;
+        seatNodes = new Node[numRows * seatsPerRow];
+        
+        //Process each row from the file
+        for (int i = 0; i < numRows; i++) {
+            String rowData = lines.get(i);
+            Node rowHead = null;
+            Node previousSeat = null;
+            
+            //Process each seat in the row
+            for (int j = 0; j < seatsPerRow; j++) {
+                char seatType = rowData.charAt(j);
+                //Create seat with 1-indexed row and letter-indexed column
+                Seat seat = new Seat(i + 1, (char)('A' + j), seatType != '.');
+                Node newNode = new Node(seat);
+                seatNodes[i * seatsPerRow + j] = newNode;
+                
+                //Set ticket type if seat is already reserved
+                if (seatType != '.') {
+                    seat.setTicketType(seatType);
+                }
+                
+                //Link seat to previous seat horizontally
+                if (rowHead == null) {
+                    rowHead = newNode;
+                }
+                
+                if (previousSeat != null) {
+                    previousSeat.setRight(newNode);
+                }
+                
+                previousSeat = newNode;
+            }
+            
+            //Set the first node if this is the first row
+            if (first == null) {
+                first = rowHead;
+            }
+            
+            //Link row to previous row vertically
+            if (previousRow != null) {
+                Node current = previousRow;
+                Node currentNewRow = rowHead;
+                
+                while (current != null && currentNewRow != null) {
+                    current.setDown(currentNewRow);
+                    current = current.getRight();
+                    currentNewRow = currentNewRow.getRight();
+                }
+            }
+            
+            previousRow = rowHead;
+        }
+    }
+    
+    //Returns the first node (top-left corner) for callers that traverse the grid
+    public Node getFirst() {
+        return first;
+    }
+    
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+    
+    @Override
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+    
+    @Override
+    public boolean isReserved(int row, int seat) {
+        return getNode(row, seat).getSeat().isReserved();
+    }
+    
+    @Override
+    public boolean isHeld(int row, int seat) {
+        return getNode(row, seat).getSeat().isHeld();
+    }
+    
+    @Override
+    public char getTicketType(int row, int seat) {
+        return getNode(row, seat).getSeat().getTicketType();
+    }
+    
+    @Override
+    public void reserve(int row, int seat, char ticketType) {
+        Seat target = getNode(row, seat).getSeat();
+        target.reserve();
+        target.setTicketType(ticketType);
+    }
+    
+    @Override
+    public void unreserve(int row, int seat) {
+        getNode(row, seat).getSeat().unreserve();
+    }
+    
+    @Override
+    public void hold(int row, int seat) {
+        getNode(row, seat).getSeat().hold();
+    }
+    
+    @Override
+    public void release(int row, int seat) {
+        getNode(row, seat).getSeat().release();
+    }
+    
+    @Override
+    public boolean isRangeFree(int row, int startSeat, int numberOfSeats) {
+        int index = seatIndex(row, startSeat);
+        for (int i = 0; i < numberOfSeats; i++) {
+            if (isTaken(seatNodes[index + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public int getLongestFreeRun(int row) {
+        if (seatsPerRow == 0) {
+            return 0;
+        }
+        
+        int longest = 0;
+        int runLength = 0;
+        
+        for (Node current = getNode(row, 0); current != null; current = current.getRight()) {
+            runLength = isTaken(current) ? 0 : runLength + 1;
+            longest = Math.max(longest, runLength);
+        }
+        
+        return longest;
+    }
+    
+    //Steps outwards from the range through the node index until a taken seat
+    //or the end of the row, without walking the row from its first node
+    @Override
+    public int getFreeRunAround(int row, int startSeat, int numberOfSeats) {
+        int rowStart = seatIndex(row, 0);
+        int left = seatIndex(row, startSeat) - 1;
+        while (left >= rowStart && !isTaken(seatNodes[left])) {
+            left--;
+        }
+        int right = seatIndex(row, startSeat + numberOfSeats);
+        while (right < rowStart + seatsPerRow && !isTaken(seatNodes[right])) {
+            right++;
+        }
+        return right - left - 1;
+    }
+    
+    //Walks the row once, marking a start whenever the current free run
+    //has grown long enough to hold the requested number of seats
+    @Override
+    public long[] findRunStarts(int row, int numberOfSeats) {
+        long[] starts = new long[(seatsPerRow + 63) >>> 6];
+        int runLength = 0;
+        int seat = 0;
+        
+        for (Node current = getNode(row, 0); current != null; current = current.getRight()) {
+            runLength = isTaken(current) ? 0 : runLength + 1;
+            if (runLength >= numberOfSeats) {
+                int start = seat - numberOfSeats + 1;
+                starts[start >>> 6] |= 1L << start;
+            }
+            seat++;
+        }
+        
+        return starts;
+    }
+    
+    //Checks if the seat of a node is reserved or held
+    private static boolean isTaken(Node node) {
+        Seat seat = node.getSeat();
+        return seat.isReserved() || seat.isHeld();
+    }
+    
+    //Returns the node for a seat using the row-major index
+    private Node getNode(int row, int seat) {
+        return seatNodes[seatIndex(row, seat)];
+    }
+    
+    //Returns the position of a seat in the row-major node index
+    private int seatIndex(int row, int seat) {
+        return (row - 1) * seatsPerRow + seat;
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+//Binary auditorium layout kept in a memory-mapped file.
+//The file is a 16 byte header (magic, version, rows, seats per row) followed
+//by one byte per seat in row-major order, holding the ticket type or '.' for
+//an open seat. Seat changes are written straight into the mapping, so the
+//file always matches the auditorium without a separate save step.
+public class MappedSeatStore {
+    //Marks a file as a binary auditorium layout ("AUD1")
+    private static final int MAGIC = 0x41554431;
+    //Version of the binary layout format
+    private static final int VERSION = 1;
+    //Size of the header in bytes
+    private static final int HEADER_SIZE = 16;
+    //Byte stored for seats that are not reserved
+    private static final byte OPEN = (byte) '.';
+    
+    //Mapping of the whole file
+    private MappedByteBuffer buffer;
+    //Total number of rows in the layout
+    private int numRows;
+    //Total number of seats per row
+    private int seatsPerRow;
+    
+    //Constructor wraps a mapping whose header has already been checked
+    private MappedSeatStore(MappedByteBuffer buffer, int numRows, int seatsPerRow) {
+        this.buffer = buffer;
+        this.numRows = numRows;
+        this.seatsPerRow = seatsPerRow;
+    }
+    
+    //Maps an existing binary layout file
+    //Throws IOException if the file is missing, truncated or not a layout file
+    public static MappedSeatStore open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(filename + " is not an auditorium layout");
+            }
+            
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(filename + " is not an auditorium layout");
+            }
+            
+            int numRows = buffer.getInt(8);
+            int seatsPerRow = buffer.getInt(12);
+            if (numRows < 0 || seatsPerRow < 0
+                || HEADER_SIZE + (long) numRows * seatsPerRow != channel.size()) {
+                throw new IOException(filename + " has an invalid size");
+            }
+            
+            //The mapping stays valid after the channel is closed
+            return new MappedSeatStore(buffer, numRows, seatsPerRow);
+        }
+    }
+    
+    //Creates or replaces a binary layout file from text rows and maps it
+    //Each character is a ticket type (A, C, S) or '.' for an open seat
+    public static MappedSeatStore create(String filename, List<String> lines) throws IOException {
+        int numRows = lines.size();
+        int seatsPerRow = numRows > 0 ? lines.get(0).length() : 0;
+        long size = HEADER_SIZE + (long) numRows * seatsPerRow;
+        
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, numRows);
+            buffer.putInt(12, seatsPerRow);
+            
+            for (int i = 0; i < numRows; i++) {
+                String rowData = lines.get(i);
+                for (int j = 0; j < seatsPerRow; j++) {
+                    char seatType = j < rowData.length() ? rowData.charAt(j) : '.';
+                    buffer.put(HEADER_SIZE + i * seatsPerRow + j, (byte) seatType);
+                }
+            }
+            
+            buffer.force();
+            return new MappedSeatStore(buffer, numRows, seatsPerRow);
+        }
+    }
+    
+    //Returns the total number of rows in the layout
+    public int getNumRows() {
+        return numRows;
+    }
+    
+    //Returns the number of seats per row
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+    
+    //Returns the layout as text rows, in the same form as the text layout files
+    public List<String> readRows() {
+        List<String> lines = new ArrayList<>(numRows);
+        byte[] rowBytes = new byte[seatsPerRow];
+        
+        for (int i = 0; i < numRows; i++) {
+            ByteBuffer row = buffer.duplicate();
+            row.position(HEADER_SIZE + i * seatsPerRow);
+            row.get(rowBytes);
+            lines.add(new String(rowBytes, StandardCharsets.ISO_8859_1));
+        }
+        
+        return lines;
+    }
+    
+    //Records the ticket type of a reserved seat
+    //Rows are 1-indexed and seats are 0-indexed, matching the Auditorium methods
+    public void reserve(int row, int seat, char ticketType) {
+        buffer.put(HEADER_SIZE + (row - 1) * seatsPerRow + seat, (byte) ticketType);
+    }
+    
+    //Records a seat as open
+    public void unreserve(int row, int seat) {
+        buffer.put(HEADER_SIZE + (row - 1) * seatsPerRow + seat, OPEN);
+    }
+    
+    //Forces every change made through the mapping out to the file
+    public void force() {
+        buffer.force();
+    }
+}
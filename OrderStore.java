@@ -0,0 +1,544 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+//Persistent store of customer orders with an in-memory index by username.
+//Every change to an order appends a new compact binary record of the whole
+//order, and a cancelled order appends a short deletion record. Opening the
+//store reads only the record headers to build the index, which maps each
+//username to the file position of the latest record of each of their orders.
+//A customer's orders are read and rebuilt only when that customer logs in.
+//Records are written while holding the store lock but forced to disk after it
+//is released, and one force covers every record written before it, so sessions
+//that change orders at the same time share a single fsync (group commit).
+//Once a write or force fails the store refuses every later write, since a
+//record appended after a torn one would be dropped with it on the next open.
+//
+//Record layout (big-endian):
+//  int length of the rest of the record
+//  byte kind (1 = order, 2 = deleted, 3 = group)
+//  long order id (the number of orders for a group)
+//  short username length, then the UTF-8 username (empty for a group)
+//  order records continue with:
+//  byte auditorium, int row, int start seat, int original ticket count,
+//  int seat count, then per seat an int packed seat code and a byte ticket type
+//  group records continue with one complete order record per order
+//Orders reserved together are written as one group record, so a group cut
+//short by a crash is dropped whole.
+public class OrderStore {
+    //Record kind holding the full state of an order
+    private static final byte KIND_ORDER = 1;
+    //Record kind marking an order as deleted
+    private static final byte KIND_DELETED = 2;
+    //Record kind wrapping the order records of orders reserved together
+    private static final byte KIND_GROUP = 3;
+    //Size of the length, kind, id and username length fields
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 2;
+    
+    //Path of the store file
+    private Path path;
+    //Open store file, appended to on every change
+    private FileChannel channel;
+    //Position of the latest record of every live order, by username then order id
+    private Map<String, Map<Long, Long>> index = new HashMap<>();
+    //Usernames whose orders have already been loaded into their customer
+    private Set<String> loadedUsers = new HashSet<>();
+    //Identifier given to the next new order
+    private long nextOrderId = 1;
+    //Bytes of records that are still the latest version of a live order
+    private long liveBytes;
+    //Username holding each stored seat of customers whose orders are not loaded,
+    //by auditorium number and packed seat code, built on the first lookup
+    private Map<Long, String> unloadedHolders;
+    //Guards the file and the index and is held around the private helpers that
+    //write records, a ReentrantLock so sessions on virtual threads reading or
+    //writing the file do not pin their carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    //Taken by the one thread forcing the file, the others wait for it in turn
+    private ReentrantLock forceLock = new ReentrantLock();
+    //File size up to which every record is on disk
+    private volatile long forcedSize;
+    //First write or force failure, after which nothing more is written
+    private volatile IOException failure;
+    
+    //Constructor opens the file, use open to also build the index
+    private OrderStore(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    //Opens the store file, creating it if needed, and builds the username index
+    //A record cut short by a crash is dropped, and the file is compacted when
+    //most of it is taken up by superseded records
+    public static OrderStore open(String filename) throws IOException {
+        OrderStore store = new OrderStore(Paths.get(filename));
+        store.buildIndex();
+        if (store.channel.size() > 2 * store.liveBytes + 4096) {
+            store.compact();
+        }
+        store.forcedSize = store.channel.size();
+        return store;
+    }
+    
+    //Reserves the seats of every stored order as seats without a loaded owner
+    //Used when the auditoriums were loaded from layouts that do not include them
+    public void restoreSeats(Auditorium[] auditoriums) throws IOException {
+        lock.lock();
+        try {
+            for (Map<Long, Long> orders : index.values()) {
+                for (long position : orders.values()) {
+                    ByteBuffer record = readRecord(position);
+                    int auditoriumNumber = record.get();
+                    record.getInt();
+                    record.getInt();
+                    record.getInt();
+                    int seatCount = record.getInt();
+                    for (int i = 0; i < seatCount; i++) {
+                        int code = record.getInt();
+                        char ticketType = (char) record.get();
+                        if (auditoriumNumber >= 1 && auditoriumNumber <= auditoriums.length) {
+                            auditoriums[auditoriumNumber - 1].reserveSeat(SeatSet.rowOf(code), SeatSet.seatOf(code), ticketType);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Loads the stored orders of a customer the first time they are needed
+    //Each seat is claimed for its order in the auditorium, so ownership checks work as usual
+    public void loadOrders(Customer customer, Auditorium[] auditoriums) throws IOException {
+        long written;
+        lock.lock();
+        try {
+            written = readOrders(customer, auditoriums);
+        } finally {
+            lock.unlock();
+        }
+        force(written);
+    }
+    
+    //Returns the username of the stored order holding a seat, if that customer's
+    //orders are not loaded yet, since their seats are reserved without an owner
+    //Returns null if no unloaded order holds the seat
+    public String findHolder(int auditoriumNumber, int row, int seat) throws IOException {
+        lock.lock();
+        try {
+            if (unloadedHolders == null) {
+                unloadedHolders = new HashMap<>();
+                for (Map.Entry<String, Map<Long, Long>> user : index.entrySet()) {
+                    if (loadedUsers.contains(user.getKey())) {
+                        continue;
+                    }
+                    for (long position : user.getValue().values()) {
+                        ByteBuffer record = readRecord(position);
+                        int recordAuditorium = record.get();
+                        record.position(record.position() + 3 * 4);
+                        int seatCount = record.getInt();
+                        for (int i = 0; i < seatCount; i++) {
+                            unloadedHolders.put(holderKey(recordAuditorium, record.getInt()), user.getKey());
+                            record.get();
+                        }
+                    }
+                }
+            }
+            return unloadedHolders.get(holderKey(auditoriumNumber, SeatSet.pack(row, seat)));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Writes the current state of an order, giving it an identifier if it has none
+    //The ticket type of each seat is read from the auditorium
+    public void save(Customer.Order order, Auditorium auditorium) throws IOException {
+        long written;
+        lock.lock();
+        try {
+            written = writeOrder(order, auditorium);
+        } finally {
+            lock.unlock();
+        }
+        force(written);
+    }
+    
+    //Writes several new orders as one record that is loaded whole or not at all
+    public void saveGroup(List<Customer.Order> orders, Auditorium auditorium) throws IOException {
+        long written;
+        lock.lock();
+        try {
+            written = writeGroup(orders, auditorium);
+        } finally {
+            lock.unlock();
+        }
+        force(written);
+    }
+    
+    //Marks an order as deleted so it is not loaded again
+    public void delete(Customer.Order order) throws IOException {
+        long written;
+        lock.lock();
+        try {
+            written = writeDeleted(order);
+        } finally {
+            lock.unlock();
+        }
+        force(written);
+    }
+    
+    //Closes the store file
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Rebuilds a customer's stored orders the first time they are loaded
+    //Returns the file size after any corrected records, which still need forcing
+    private long readOrders(Customer customer, Auditorium[] auditoriums) throws IOException {
+        long written = 0;
+        if (!loadedUsers.add(customer.getUsername())) {
+            return written;
+        }
+        
+        Map<Long, Long> orders = index.get(customer.getUsername());
+        if (orders == null) {
+            return written;
+        }
+        
+        //Copy the entries, since correcting a stale record below changes the index
+        for (Map.Entry<Long, Long> entry : new ArrayList<>(orders.entrySet())) {
+            ByteBuffer record = readRecord(entry.getValue());
+            int auditoriumNumber = record.get();
+            int row = record.getInt();
+            int startSeat = record.getInt();
+            int originalTicketCount = record.getInt();
+            int seatCount = record.getInt();
+            if (auditoriumNumber < 1 || auditoriumNumber > auditoriums.length) {
+                continue;
+            }
+            
+            Auditorium auditorium = auditoriums[auditoriumNumber - 1];
+            Customer.Order order = customer.newOrder(auditoriumNumber, row, startSeat, 0, 0, 0);
+            order.setId(entry.getKey());
+            order.setOriginalTicketCount(originalTicketCount);
+            
+            for (int i = 0; i < seatCount; i++) {
+                int code = record.getInt();
+                char ticketType = (char) record.get();
+                int seatRow = SeatSet.rowOf(code);
+                int seat = SeatSet.seatOf(code);
+                if (unloadedHolders != null) {
+                    unloadedHolders.remove(holderKey(auditoriumNumber, code));
+                }
+                if (auditorium.claimSeat(seatRow, seat, order)) {
+                    order.addTickets(seatRow, seat, 1, ticketType == 'A' ? 1 : 0,
+                        ticketType == 'C' ? 1 : 0, ticketType == 'S' ? 1 : 0);
+                }
+            }
+            
+            //Seats that are no longer reserved are dropped from the stored order
+            if (order.getTotalTickets() == 0) {
+                written = Math.max(written, writeDeleted(order));
+                continue;
+            }
+            customer.addOrder(order);
+            if (order.getTotalTickets() != seatCount) {
+                written = Math.max(written, writeOrder(order, auditorium));
+            }
+        }
+        return written;
+    }
+    
+    //Appends a record of the current state of an order
+    //Returns the file size after the record
+    private long writeOrder(Customer.Order order, Auditorium auditorium) throws IOException {
+        ByteBuffer record = encodeOrder(order, auditorium);
+        long position = append(record);
+        indexOrder(order, position, record.capacity());
+        return position + record.capacity();
+    }
+    
+    //Appends one group record holding an order record for each order
+    //Returns the file size after the record
+    private long writeGroup(List<Customer.Order> orders, Auditorium auditorium) throws IOException {
+        List<ByteBuffer> records = new ArrayList<>(orders.size());
+        int length = HEADER_SIZE - 4;
+        for (Customer.Order order : orders) {
+            ByteBuffer record = encodeOrder(order, auditorium);
+            records.add(record);
+            length += record.capacity();
+        }
+        
+        ByteBuffer group = ByteBuffer.allocate(4 + length);
+        group.putInt(length);
+        group.put(KIND_GROUP);
+        group.putLong(orders.size());
+        group.putShort((short) 0);
+        for (ByteBuffer record : records) {
+            record.flip();
+            group.put(record);
+        }
+        
+        long position = append(group) + HEADER_SIZE;
+        for (int i = 0; i < orders.size(); i++) {
+            indexOrder(orders.get(i), position, records.get(i).capacity());
+            position += records.get(i).capacity();
+        }
+        return position;
+    }
+    
+    //Builds the record of the current state of an order, giving it an identifier if it has none
+    //The ticket type of each seat is read from the auditorium
+    private ByteBuffer encodeOrder(Customer.Order order, Auditorium auditorium) {
+        if (order.getId() == 0) {
+            order.setId(nextOrderId++);
+        }
+        
+        byte[] username = order.getCustomer().getUsername().getBytes(StandardCharsets.UTF_8);
+        SeatSet seats = order.getSeats();
+        int length = 1 + 8 + 2 + username.length + 1 + 4 * 4 + seats.size() * 5;
+        
+        ByteBuffer record = ByteBuffer.allocate(4 + length);
+        record.putInt(length);
+        record.put(KIND_ORDER);
+        record.putLong(order.getId());
+        record.putShort((short) username.length);
+        record.put(username);
+        record.put((byte) order.getAuditoriumNumber());
+        record.putInt(order.getRow());
+        record.putInt(order.getStartSeat());
+        record.putInt(order.getOriginalTicketCount());
+        record.putInt(seats.size());
+        for (int i = 0; i < seats.size(); i++) {
+            int code = seats.getCode(i);
+            record.putInt(code);
+            record.put((byte) auditorium.getSeatType(SeatSet.rowOf(code), SeatSet.seatOf(code)));
+        }
+        return record;
+    }
+    
+    //Makes a written order record the latest one of its order
+    private void indexOrder(Customer.Order order, long position, int size) throws IOException {
+        Long previous = index.computeIfAbsent(order.getCustomer().getUsername(), key -> new LinkedHashMap<>())
+            .put(order.getId(), position);
+        liveBytes += size - (previous != null ? recordSize(previous) : 0);
+    }
+    
+    //Appends a deletion record for an order that has a stored record
+    //Returns the file size after the record, or 0 if nothing was written
+    private long writeDeleted(Customer.Order order) throws IOException {
+        Map<Long, Long> orders = index.get(order.getCustomer().getUsername());
+        Long previous = orders != null ? orders.remove(order.getId()) : null;
+        if (previous == null) {
+            return 0;
+        }
+        liveBytes -= recordSize(previous);
+        
+        byte[] username = order.getCustomer().getUsername().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(4 + 1 + 8 + 2 + username.length);
+        record.putInt(record.capacity() - 4);
+        record.put(KIND_DELETED);
+        record.putLong(order.getId());
+        record.putShort((short) username.length);
+        record.put(username);
+        return append(record) + record.capacity();
+    }
+    
+    //Appends a complete record without forcing it to disk
+    //Returns the position the record was written at
+    private long append(ByteBuffer record) throws IOException {
+        checkWritable();
+        try {
+            long position = channel.size();
+            record.flip();
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+            return position;
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+    
+    //Throws if an earlier write or force failed
+    private void checkWritable() throws IOException {
+        if (failure != null) {
+            throw new IOException("order store failed", failure);
+        }
+    }
+    
+    //Waits until the file is on disk up to the given size
+    //Whoever takes the force lock forces every record written so far, so the
+    //threads queued behind it usually find their records already forced
+    private void force(long size) throws IOException {
+        if (forcedSize >= size) {
+            return;
+        }
+        
+        forceLock.lock();
+        try {
+            if (forcedSize >= size) {
+                return;
+            }
+            //A failed force may have lost the records, so they are never reported durable
+            checkWritable();
+            long target;
+            lock.lock();
+            try {
+                target = channel.size();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            forcedSize = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+    
+    //Returns the key of a seat in the unloaded holder map
+    private static long holderKey(int auditoriumNumber, int code) {
+        return ((long) auditoriumNumber << 32) | (code & 0xffffffffL);
+    }
+    
+    //Reads the record at a position and returns it positioned after the username
+    private ByteBuffer readRecord(long position) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(recordSize(position));
+        readFully(record, position);
+        record.flip();
+        record.position(4 + 1 + 8);
+        short usernameLength = record.getShort();
+        record.position(record.position() + usernameLength);
+        return record;
+    }
+    
+    //Fills a buffer from the file starting at a position, stopping early only at the end of the file
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            //Keep reading until the buffer is full
+        }
+    }
+    
+    //Returns the total size of the record at a position, including its length field
+    private int recordSize(long position) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        channel.read(length, position);
+        return 4 + length.getInt(0);
+    }
+    
+    //Scans the record headers and keeps the position of the latest record of every order
+    private void buildIndex() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        
+        while (position < size) {
+            long recordSize = indexRecord(position, size);
+            if (recordSize < 0) {
+                break;
+            }
+            position += recordSize;
+        }
+        
+        //Drop a record that was cut short
+        if (position < size) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+    }
+    
+    //Indexes the record at a position if it is complete before the limit
+    //The order records inside a group are indexed one by one
+    //Returns the size of the record, or -1 if it is cut short or unreadable
+    private long indexRecord(long position, long limit) throws IOException {
+        if (position + HEADER_SIZE > limit) {
+            return -1;
+        }
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, position);
+        int length = header.getInt(0);
+        byte kind = header.get(4);
+        long id = header.getLong(5);
+        int usernameLength = header.getShort(13);
+        if (length < HEADER_SIZE - 4 + usernameLength || position + 4 + length > limit
+            || (kind != KIND_ORDER && kind != KIND_DELETED && kind != KIND_GROUP)) {
+            return -1;
+        }
+        
+        if (kind == KIND_GROUP) {
+            long end = position + 4 + length;
+            for (long inner = position + HEADER_SIZE; inner < end; ) {
+                long innerSize = indexRecord(inner, end);
+                if (innerSize < 0) {
+                    //A complete group can only hold complete records
+                    throw new IOException(path + " has an unreadable group record");
+                }
+                inner += innerSize;
+            }
+            return 4 + length;
+        }
+        
+        ByteBuffer name = ByteBuffer.allocate(usernameLength);
+        readFully(name, position + HEADER_SIZE);
+        String username = new String(name.array(), StandardCharsets.UTF_8);
+        
+        Map<Long, Long> orders = index.computeIfAbsent(username, key -> new LinkedHashMap<>());
+        Long previous = kind == KIND_ORDER ? orders.put(id, position) : orders.remove(id);
+        if (previous != null) {
+            liveBytes -= recordSize(previous);
+        }
+        if (kind == KIND_ORDER) {
+            liveBytes += 4 + length;
+        }
+        nextOrderId = Math.max(nextOrderId, id + 1);
+        return 4 + length;
+    }
+    
+    //Rewrites the file with only the latest record of every live order
+    private void compact() throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Map<String, Map<Long, Long>> compacted = new HashMap<>();
+        
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long written = 0;
+            for (Map.Entry<String, Map<Long, Long>> user : index.entrySet()) {
+                Map<Long, Long> orders = new LinkedHashMap<>();
+                for (Map.Entry<Long, Long> order : user.getValue().entrySet()) {
+                    ByteBuffer record = ByteBuffer.allocate(recordSize(order.getValue()));
+                    readFully(record, order.getValue());
+                    record.flip();
+                    orders.put(order.getKey(), written);
+                    while (record.hasRemaining()) {
+                        written += out.write(record);
+                    }
+                }
+                if (!orders.isEmpty()) {
+                    compacted.put(user.getKey(), orders);
+                }
+            }
+            out.force(true);
+        }
+        
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = compacted;
+    }
+}
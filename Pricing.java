@@ -0,0 +1,106 @@
+import java.io.*;
+import java.util.*;
+
+//Ticket prices in cents for each auditorium.
+//Every auditorium has a table indexed directly by the ticket type byte ('A',
+//'C', 'S'), so pricing a seat or a whole counter is a single array lookup and
+//totals are exact integer sums. The tables start with the standard prices and
+//can be overridden once at startup from an optional price file.
+public class Pricing {
+    //Number of auditoriums with a price table
+    private static final int NUM_AUDITORIUMS = 3;
+    //Number of ticket type codes a table covers (7-bit ASCII)
+    private static final int TYPE_CODES = 128;
+    //Standard price of an adult ticket in cents
+    public static final int ADULT_PRICE_CENTS = 1000;
+    //Standard price of a child ticket in cents
+    public static final int CHILD_PRICE_CENTS = 500;
+    //Standard price of a senior ticket in cents
+    public static final int SENIOR_PRICE_CENTS = 750;
+    
+    //Price table of each auditorium (index 0 is auditorium 1)
+    private static int[][] tables = defaultTables();
+    
+    //Builds the tables holding the standard prices
+    private static int[][] defaultTables() {
+        int[][] defaults = new int[NUM_AUDITORIUMS][TYPE_CODES];
+        for (int[] table : defaults) {
+            table['A'] = ADULT_PRICE_CENTS;
+            table['C'] = CHILD_PRICE_CENTS;
+            table['S'] = SENIOR_PRICE_CENTS;
+        }
+        return defaults;
+    }
+    
+    //Loads price overrides from a file, keeping the standard prices if it does not exist
+    //Each line holds an auditorium number (0 for all), a ticket type and a price in cents,
+    //for example "2 A 1250". Malformed lines are skipped.
+    //Must be called before any orders are created, since order totals use these prices
+    public static void load(String filename) {
+        int[][] loaded = defaultTables();
+        
+        try (Scanner fileScanner = new Scanner(new File(filename))) {
+            while (fileScanner.hasNextLine()) {
+                String[] parts = fileScanner.nextLine().trim().split("\\s+");
+                if (parts.length < 3 || parts[1].length() != 1 || parts[1].charAt(0) >= TYPE_CODES) {
+                    continue;
+                }
+                
+                try {
+                    int auditoriumNumber = Integer.parseInt(parts[0]);
+                    int priceCents = Integer.parseInt(parts[2]);
+                    if (auditoriumNumber < 0 || auditoriumNumber > NUM_AUDITORIUMS || priceCents < 0) {
+                        continue;
+                    }
+                    
+                    char ticketType = Character.toUpperCase(parts[1].charAt(0));
+                    for (int i = 0; i < NUM_AUDITORIUMS; i++) {
+                        if (auditoriumNumber == 0 || auditoriumNumber == i + 1) {
+                            loaded[i][ticketType] = priceCents;
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    //Skip lines with invalid numbers
+                }
+            }
+        } catch (FileNotFoundException e) {
+            //No price file, the standard prices apply
+        }
+        
+        tables = loaded;
+    }
+    
+    //Returns the price in cents of one ticket of a type in an auditorium
+    //Returns 0 for unknown auditoriums and ticket types
+    public static int getPriceCents(int auditoriumNumber, char ticketType) {
+        if (auditoriumNumber < 1 || auditoriumNumber > NUM_AUDITORIUMS || ticketType >= TYPE_CODES) {
+            return 0;
+        }
+        return tables[auditoriumNumber - 1][ticketType];
+    }
+    
+    //Returns the price in cents of a set of adult, child and senior tickets
+    public static long priceOf(int auditoriumNumber, int adultTickets, int childTickets, int seniorTickets) {
+        return (long) adultTickets * getPriceCents(auditoriumNumber, 'A')
+            + (long) childTickets * getPriceCents(auditoriumNumber, 'C')
+            + (long) seniorTickets * getPriceCents(auditoriumNumber, 'S');
+    }
+    
+    //Returns the revenue in cents of every reserved seat in an auditorium
+    //Multiplies each priced ticket type counter by its price in one pass over the table
+    public static long getRevenueCents(Auditorium auditorium) {
+        int auditoriumNumber = auditorium.getAuditoriumNumber();
+        if (auditoriumNumber < 1 || auditoriumNumber > NUM_AUDITORIUMS) {
+            return 0;
+        }
+        
+        int[] table = tables[auditoriumNumber - 1];
+        long revenue = 0;
+        for (int type = 0; type < TYPE_CODES; type++) {
+            if (table[type] != 0) {
+                revenue += (long) table[type] * auditorium.getTicketTypeCount((char) type);
+            }
+        }
+        return revenue;
+    }
+}
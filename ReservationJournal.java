@@ -0,0 +1,689 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+//Write-ahead journal of order changes so reservations survive a crash.
+//Every new order, added block of tickets, deleted ticket and cancelled order
+//is appended as one text record. A single background thread writes whatever
+//records are pending and forces them to disk with one fsync, so sessions that
+//log at the same time share the cost (group commit). Each log call returns
+//only once its record is durable, and throws once the journal can no longer
+//write, so no change is confirmed without being on disk.
+//
+//The journal keeps its own copy of every live order, updated in record order,
+//and periodically writes it out as a snapshot before emptying the log. On
+//startup the snapshot is loaded and the log replayed on top of the text
+//layouts, which are never modified while the journal is in use.
+//
+//Record formats (seq is the record sequence number):
+//  seq N id user auditorium row startSeat adult child senior
+//  seq A id row startSeat adult child senior
+//  seq D id row seat
+//  seq C id
+//  seq G user auditorium count, then id row startSeat ticketTypes per order
+//A group of orders reserved together is one G record, so it is replayed
+//whole or not at all, and its ticket types keep the order they were given in.
+public class ReservationJournal {
+    //Number of records logged after which the log is compacted into a snapshot
+    private static final int COMPACT_THRESHOLD = 10000;
+    
+    //File holding the last snapshot
+    private Path snapshotPath;
+    //File the records are appended to
+    private Path logPath;
+    //Auditoriums the journal restores into (index 0 is auditorium 1)
+    private Auditorium[] auditoriums;
+    //Customers that own the restored orders
+    private ConcurrentHashmap users;
+    //Open log file, written only by the flusher thread after startup
+    private FileChannel log;
+    //Thread that writes and forces pending records
+    private Thread flusher;
+    
+    //Guards everything below and is held around every private helper that uses it,
+    //a ReentrantLock so sessions on virtual threads waiting for their records do
+    //not pin their carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    //Signalled when records are appended, written or the journal is closed
+    private final Condition changed = lock.newCondition();
+    //Records appended but not yet handed to the flusher
+    private StringBuilder pending = new StringBuilder();
+    //Sequence number of the last appended record
+    private long lastSeq;
+    //Sequence number up to which every record is on disk
+    private long durableSeq;
+    //Number of records appended since the last snapshot
+    private int recordsSinceSnapshot;
+    //Identifier given to the next new order
+    private long nextOrderId = 1;
+    //Copy of every live order by identifier, in creation order
+    private Map<Long, OrderRecord> liveOrders = new LinkedHashMap<>();
+    //Whether close has been called
+    private boolean closed;
+    //Write error that stopped the flusher, null while healthy
+    private IOException failure;
+    
+    //Constructor only stores the files and targets, open does the loading
+    private ReservationJournal(String snapshotFile, String logFile,
+        Auditorium[] auditoriums, ConcurrentHashmap users) {
+        this.snapshotPath = Paths.get(snapshotFile);
+        this.logPath = Paths.get(logFile);
+        this.auditoriums = auditoriums;
+        this.users = users;
+    }
+    
+    //Restores the orders recorded in the snapshot and log into the auditoriums and
+    //customers, compacts them into a fresh snapshot and starts the flusher
+    //Missing files are treated as an empty journal
+    public static ReservationJournal open(String snapshotFile, String logFile,
+        Auditorium[] auditoriums, ConcurrentHashmap users) throws IOException {
+        ReservationJournal journal = new ReservationJournal(snapshotFile, logFile, auditoriums, users);
+        long snapshotSeq = journal.loadSnapshot();
+        journal.replayLog(snapshotSeq);
+        
+        journal.log = FileChannel.open(journal.logPath,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journal.writeSnapshot(journal.buildSnapshot());
+        journal.durableSeq = journal.lastSeq;
+        
+        journal.flusher = new Thread(journal::runFlusher, "journal-flusher");
+        journal.flusher.setDaemon(true);
+        journal.flusher.start();
+        return journal;
+    }
+    
+    //Records a new order after its seats were reserved and assigns its identifier
+    public void logNewOrder(Customer.Order order, int adultTickets, int childTickets, int seniorTickets)
+        throws IOException {
+        long seq;
+        lock.lock();
+        try {
+            checkWritable();
+            long id = nextOrderId++;
+            order.setId(id);
+            applyNewOrder(id, order.getCustomer().getUsername(), order.getAuditoriumNumber(),
+                order.getRow(), order.getStartSeat(), adultTickets, childTickets, seniorTickets);
+            seq = append("N " + id + " " + order.getCustomer().getUsername() + " "
+                + order.getAuditoriumNumber() + " " + order.getRow() + " " + order.getStartSeat() + " "
+                + adultTickets + " " + childTickets + " " + seniorTickets);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+    
+    //Records a group of new orders after all their seats were reserved,
+    //as one record, and assigns their identifiers
+    //Each block's owner is one of the new orders of the customer
+    public void logNewGroup(Customer customer, int auditoriumNumber, List<SeatBlock> blocks)
+        throws IOException {
+        long seq;
+        lock.lock();
+        try {
+            checkWritable();
+            StringBuilder record = new StringBuilder();
+            record.append("G ").append(customer.getUsername()).append(' ').append(auditoriumNumber)
+                .append(' ').append(blocks.size());
+            for (SeatBlock block : blocks) {
+                long id = nextOrderId++;
+                block.getOwner().setId(id);
+                applyNewBlock(id, customer.getUsername(), auditoriumNumber, block);
+                record.append(' ').append(id).append(' ').append(block.getRow())
+                    .append(' ').append(block.getStartSeat()).append(' ').append(block.getTicketTypes());
+            }
+            seq = append(record.toString());
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+    
+    //Records tickets added to an order after their seats were reserved
+    public void logAddTickets(Customer.Order order, int row, int startSeat,
+        int adultTickets, int childTickets, int seniorTickets) throws IOException {
+        long seq;
+        lock.lock();
+        try {
+            checkWritable();
+            applyAddTickets(order.getId(), row, startSeat, adultTickets, childTickets, seniorTickets);
+            seq = append("A " + order.getId() + " " + row + " " + startSeat + " "
+                + adultTickets + " " + childTickets + " " + seniorTickets);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+    
+    //Records a ticket deleted from an order, before its seat is released
+    //Logging releases first keeps every release ahead of a later booking of the same seat
+    public void logDeleteSeat(Customer.Order order, int row, int seat) throws IOException {
+        long seq;
+        lock.lock();
+        try {
+            checkWritable();
+            applyDeleteSeat(order.getId(), row, seat);
+            seq = append("D " + order.getId() + " " + row + " " + seat);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+    
+    //Records a cancelled order, before its seats are released
+    public void logCancel(Customer.Order order) throws IOException {
+        long seq;
+        lock.lock();
+        try {
+            checkWritable();
+            liveOrders.remove(order.getId());
+            seq = append("C " + order.getId());
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+    
+    //Writes out every pending record and stops the flusher
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        
+        try {
+            flusher.join();
+            log.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Error closing reservation journal: " + e.getMessage());
+        }
+    }
+    
+    //Adds a record to the pending batch and wakes the flusher
+    //Returns the sequence number of the record
+    private long append(String record) {
+        lastSeq++;
+        recordsSinceSnapshot++;
+        pending.append(lastSeq).append(' ').append(record).append('\n');
+        changed.signalAll();
+        return lastSeq;
+    }
+    
+    //Throws if the flusher failed, before a record changes the live order copies
+    private void checkWritable() throws IOException {
+        if (failure != null) {
+            throw new IOException("reservation journal failed", failure);
+        }
+    }
+    
+    //Waits until the record with the given sequence number is on disk
+    //Throws if the flusher failed first, since the record can no longer be written
+    private void awaitDurable(long seq) throws IOException {
+        lock.lock();
+        try {
+            while (durableSeq < seq && failure == null) {
+                changed.awaitUninterruptibly();
+            }
+            if (durableSeq < seq) {
+                checkWritable();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    //Body of the flusher thread
+    //Takes every pending record at once, so sessions that logged while the previous
+    //fsync was running are written together by the next one
+    private void runFlusher() {
+        try {
+            while (true) {
+                String batch = null;
+                String snapshot = null;
+                long batchSeq;
+                
+                lock.lock();
+                try {
+                    while (pending.length() == 0 && !closed) {
+                        changed.await();
+                    }
+                    if (pending.length() == 0) {
+                        return;
+                    }
+                    
+                    //A snapshot covers every record so far, so the pending ones are dropped
+                    batchSeq = lastSeq;
+                    if (recordsSinceSnapshot >= COMPACT_THRESHOLD) {
+                        snapshot = buildSnapshot();
+                        recordsSinceSnapshot = 0;
+                    } else {
+                        batch = pending.toString();
+                    }
+                    pending.setLength(0);
+                } finally {
+                    lock.unlock();
+                }
+                
+                if (snapshot != null) {
+                    writeSnapshot(snapshot);
+                } else {
+                    ByteBuffer bytes = ByteBuffer.wrap(batch.getBytes(StandardCharsets.UTF_8));
+                    while (bytes.hasRemaining()) {
+                        log.write(bytes);
+                    }
+                    log.force(false);
+                }
+                
+                lock.lock();
+                try {
+                    durableSeq = batchSeq;
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing reservation journal: " + e.getMessage());
+            lock.lock();
+            try {
+                failure = e;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            lock.lock();
+            try {
+                failure = new InterruptedIOException("journal flusher interrupted");
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    //Builds the snapshot text from the live orders
+    private String buildSnapshot() {
+        StringBuilder text = new StringBuilder();
+        text.append("SNAPSHOT ").append(lastSeq).append(' ').append(nextOrderId).append('\n');
+        
+        for (Map.Entry<Long, OrderRecord> entry : liveOrders.entrySet()) {
+            OrderRecord record = entry.getValue();
+            text.append("O ").append(entry.getKey()).append(' ').append(record.username)
+                .append(' ').append(record.auditoriumNumber).append(' ').append(record.row)
+                .append(' ').append(record.startSeat).append(' ').append(record.originalTicketCount).append('\n');
+            appendSeats(text, record.adultSeats, 'A');
+            appendSeats(text, record.childSeats, 'C');
+            appendSeats(text, record.seniorSeats, 'S');
+        }
+        
+        return text.toString();
+    }
+    
+    //Appends one seat line per seat of a ticket type
+    private static void appendSeats(StringBuilder text, SeatSet seats, char ticketType) {
+        for (int i = 0; i < seats.size(); i++) {
+            int code = seats.getCode(i);
+            text.append("S ").append(SeatSet.rowOf(code)).append(' ').append(SeatSet.seatOf(code))
+                .append(' ').append(ticketType).append('\n');
+        }
+    }
+    
+    //Replaces the snapshot file in one atomic move and empties the log
+    private void writeSnapshot(String snapshot) throws IOException {
+        Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(snapshot.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        log.truncate(0);
+        log.force(true);
+    }
+    
+    //Restores the orders of the snapshot file
+    //Returns the sequence number of the last record the snapshot covers
+    private long loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return 0;
+        }
+        
+        List<String> lines = Files.readAllLines(snapshotPath, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return 0;
+        }
+        
+        String[] header = lines.get(0).split(" ");
+        if (header.length != 3 || !header[0].equals("SNAPSHOT")) {
+            throw new IOException(snapshotPath + " is not a journal snapshot");
+        }
+        lastSeq = Long.parseLong(header[1]);
+        nextOrderId = Long.parseLong(header[2]);
+        
+        Customer.Order order = null;
+        OrderRecord record = null;
+        for (int i = 1; i < lines.size(); i++) {
+            String[] parts = lines.get(i).split(" ");
+            if (parts[0].equals("O")) {
+                //Seats are added one by one, so the order starts out empty
+                order = null;
+                record = null;
+                Customer customer = users.get(parts[2]);
+                int auditoriumNumber = Integer.parseInt(parts[3]);
+                if (customer == null || auditoriumNumber < 1 || auditoriumNumber > auditoriums.length) {
+                    continue;
+                }
+                
+                long id = Long.parseLong(parts[1]);
+                int row = Integer.parseInt(parts[4]);
+                int startSeat = Integer.parseInt(parts[5]);
+                order = customer.newOrder(auditoriumNumber, row, startSeat, 0, 0, 0);
+                order.setId(id);
+                order.setOriginalTicketCount(Integer.parseInt(parts[6]));
+                customer.addOrder(order);
+                
+                record = new OrderRecord(order, parts[2], auditoriumNumber, row, startSeat, order.getOriginalTicketCount());
+                liveOrders.put(id, record);
+            } else if (parts[0].equals("S") && order != null) {
+                int row = Integer.parseInt(parts[1]);
+                int seat = Integer.parseInt(parts[2]);
+                char ticketType = parts[3].charAt(0);
+                int adult = ticketType == 'A' ? 1 : 0;
+                int child = ticketType == 'C' ? 1 : 0;
+                int senior = ticketType == 'S' ? 1 : 0;
+                
+                if (auditoriums[order.getAuditoriumNumber() - 1].reserveIfAvailable(row, seat,
+                    adult, child, senior, order)) {
+                    order.addTickets(row, seat, 1, adult, child, senior);
+                    record.addSeats(row, seat, adult, child, senior);
+                }
+            }
+        }
+        
+        //Drop orders whose seats could not be restored
+        Iterator<OrderRecord> records = liveOrders.values().iterator();
+        while (records.hasNext()) {
+            OrderRecord restored = records.next();
+            if (restored.order.getTotalTickets() == 0) {
+                restored.order.getCustomer().removeOrder(restored.order);
+                records.remove();
+            }
+        }
+        
+        return lastSeq;
+    }
+    
+    //Replays the log records that come after the snapshot
+    //Stops at the first incomplete or unreadable record, which is a torn write
+    private void replayLog(long snapshotSeq) throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        
+        String text = new String(Files.readAllBytes(logPath), StandardCharsets.UTF_8);
+        int lineStart = 0;
+        int lineEnd;
+        while ((lineEnd = text.indexOf('\n', lineStart)) >= 0) {
+            String[] parts = text.substring(lineStart, lineEnd).split(" ");
+            lineStart = lineEnd + 1;
+            
+            long seq;
+            try {
+                seq = Long.parseLong(parts[0]);
+                if (seq > snapshotSeq) {
+                    replayRecord(parts);
+                }
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                return;
+            }
+            lastSeq = Math.max(lastSeq, seq);
+        }
+    }
+    
+    //Applies one log record to the auditoriums, customers and live order copies
+    private void replayRecord(String[] parts) {
+        if (parts[1].equals("G")) {
+            replayGroup(parts);
+            return;
+        }
+        
+        long id = Long.parseLong(parts[2]);
+        OrderRecord record = liveOrders.get(id);
+        
+        switch (parts[1]) {
+            case "N": {
+                nextOrderId = Math.max(nextOrderId, id + 1);
+                Customer customer = users.get(parts[3]);
+                int auditoriumNumber = Integer.parseInt(parts[4]);
+                int row = Integer.parseInt(parts[5]);
+                int startSeat = Integer.parseInt(parts[6]);
+                int adult = Integer.parseInt(parts[7]);
+                int child = Integer.parseInt(parts[8]);
+                int senior = Integer.parseInt(parts[9]);
+                if (customer == null || auditoriumNumber < 1 || auditoriumNumber > auditoriums.length) {
+                    return;
+                }
+                
+                Customer.Order order = customer.newOrder(auditoriumNumber, row, startSeat, adult, child, senior);
+                order.setId(id);
+                if (auditoriums[auditoriumNumber - 1].reserveIfAvailable(row, startSeat, adult, child, senior, order)) {
+                    customer.addOrder(order);
+                    applyNewOrder(id, parts[3], auditoriumNumber, row, startSeat, adult, child, senior);
+                    liveOrders.get(id).order = order;
+                }
+                break;
+            }
+            case "A": {
+                if (record == null) {
+                    return;
+                }
+                int row = Integer.parseInt(parts[3]);
+                int startSeat = Integer.parseInt(parts[4]);
+                int adult = Integer.parseInt(parts[5]);
+                int child = Integer.parseInt(parts[6]);
+                int senior = Integer.parseInt(parts[7]);
+                
+                Customer.Order order = record.order;
+                if (auditoriums[order.getAuditoriumNumber() - 1].reserveIfAvailable(row, startSeat,
+                    adult, child, senior, order)) {
+                    order.addTickets(row, startSeat, adult + child + senior, adult, child, senior);
+                    applyAddTickets(id, row, startSeat, adult, child, senior);
+                }
+                break;
+            }
+            case "D": {
+                if (record == null) {
+                    return;
+                }
+                int row = Integer.parseInt(parts[3]);
+                int seat = Integer.parseInt(parts[4]);
+                
+                Customer.Order order = record.order;
+                Auditorium auditorium = auditoriums[order.getAuditoriumNumber() - 1];
+                char ticketType = auditorium.getSeatType(row, seat);
+                if (!auditorium.unreserveSeat(row, seat, order)) {
+                    return;
+                }
+                order.removeSeat(row, seat);
+                switch (ticketType) {
+                    case 'A': order.removeAdultTicket(); break;
+                    case 'C': order.removeChildTicket(); break;
+                    case 'S': order.removeSeniorTicket(); break;
+                }
+                if (order.getTotalTickets() == 0) {
+                    order.getCustomer().removeOrder(order);
+                }
+                applyDeleteSeat(id, row, seat);
+                break;
+            }
+            case "C": {
+                if (record == null) {
+                    return;
+                }
+                Customer.Order order = record.order;
+                Auditorium auditorium = auditoriums[order.getAuditoriumNumber() - 1];
+                SeatSet seats = order.getSeats();
+                for (int i = 0; i < seats.size(); i++) {
+                    int code = seats.getCode(i);
+                    auditorium.unreserveSeat(SeatSet.rowOf(code), SeatSet.seatOf(code), order);
+                }
+                seats.clear();
+                order.getCustomer().removeOrder(order);
+                liveOrders.remove(id);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unknown record " + parts[1]);
+        }
+    }
+    
+    //Reserves the blocks of a group record, all of them or none
+    private void replayGroup(String[] parts) {
+        Customer customer = users.get(parts[2]);
+        int auditoriumNumber = Integer.parseInt(parts[3]);
+        int count = Integer.parseInt(parts[4]);
+        
+        List<SeatBlock> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int field = 5 + 4 * i;
+            long id = Long.parseLong(parts[field]);
+            int row = Integer.parseInt(parts[field + 1]);
+            int startSeat = Integer.parseInt(parts[field + 2]);
+            String ticketTypes = parts[field + 3];
+            nextOrderId = Math.max(nextOrderId, id + 1);
+            
+            Customer.Order order = customer == null ? null : customer.newOrder(auditoriumNumber, row, startSeat,
+                countType(ticketTypes, 'A'), countType(ticketTypes, 'C'), countType(ticketTypes, 'S'));
+            if (order != null) {
+                order.setId(id);
+            }
+            blocks.add(new SeatBlock(row, startSeat, ticketTypes, order));
+        }
+        if (customer == null || auditoriumNumber < 1 || auditoriumNumber > auditoriums.length
+            || !auditoriums[auditoriumNumber - 1].reserveBlocks(blocks)) {
+            return;
+        }
+        
+        for (SeatBlock block : blocks) {
+            customer.addOrder(block.getOwner());
+            applyNewBlock(block.getOwner().getId(), parts[2], auditoriumNumber, block);
+            liveOrders.get(block.getOwner().getId()).order = block.getOwner();
+        }
+    }
+    
+    //Returns how many seats of a block have a ticket type
+    private static int countType(String ticketTypes, char ticketType) {
+        int count = 0;
+        for (int i = 0; i < ticketTypes.length(); i++) {
+            if (ticketTypes.charAt(i) == ticketType) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    //Adds a new order of a group to the live order copies
+    private void applyNewBlock(long id, String username, int auditoriumNumber, SeatBlock block) {
+        OrderRecord record = new OrderRecord(null, username, auditoriumNumber, block.getRow(),
+            block.getStartSeat(), block.getNumberOfSeats());
+        record.addSeats(block.getRow(), block.getStartSeat(), block.getTicketTypes());
+        liveOrders.put(id, record);
+    }
+    
+    //Adds a new order to the live order copies
+    private void applyNewOrder(long id, String username, int auditoriumNumber, int row, int startSeat,
+        int adultTickets, int childTickets, int seniorTickets) {
+        OrderRecord record = new OrderRecord(null, username, auditoriumNumber, row, startSeat,
+            adultTickets + childTickets + seniorTickets);
+        record.addSeats(row, startSeat, adultTickets, childTickets, seniorTickets);
+        liveOrders.put(id, record);
+    }
+    
+    //Adds a block of tickets to a live order copy
+    private void applyAddTickets(long id, int row, int startSeat,
+        int adultTickets, int childTickets, int seniorTickets) {
+        OrderRecord record = liveOrders.get(id);
+        if (record != null) {
+            record.addSeats(row, startSeat, adultTickets, childTickets, seniorTickets);
+        }
+    }
+    
+    //Removes a seat from a live order copy, dropping the order once it is empty
+    private void applyDeleteSeat(long id, int row, int seat) {
+        OrderRecord record = liveOrders.get(id);
+        if (record == null) {
+            return;
+        }
+        
+        record.adultSeats.remove(row, seat);
+        record.childSeats.remove(row, seat);
+        record.seniorSeats.remove(row, seat);
+        if (record.adultSeats.isEmpty() && record.childSeats.isEmpty() && record.seniorSeats.isEmpty()) {
+            liveOrders.remove(id);
+        }
+    }
+    
+    //Journal copy of a live order, with its seats split by ticket type
+    private static class OrderRecord {
+        //Order object restored from this record, only set while loading
+        Customer.Order order;
+        //Username of the customer who placed the order
+        String username;
+        //Auditorium number of the order (1-3)
+        int auditoriumNumber;
+        //Row of the original reservation
+        int row;
+        //Starting seat of the original reservation
+        int startSeat;
+        //Ticket count of the original reservation
+        int originalTicketCount;
+        //Seats holding adult tickets
+        SeatSet adultSeats = new SeatSet();
+        //Seats holding child tickets
+        SeatSet childSeats = new SeatSet();
+        //Seats holding senior tickets
+        SeatSet seniorSeats = new SeatSet();
+        
+        //Constructor creates a record with no seats
+        OrderRecord(Customer.Order order, String username, int auditoriumNumber, int row, int startSeat,
+            int originalTicketCount) {
+            this.order = order;
+            this.username = username;
+            this.auditoriumNumber = auditoriumNumber;
+            this.row = row;
+            this.startSeat = startSeat;
+            this.originalTicketCount = originalTicketCount;
+        }
+        
+        //Adds consecutive seats with adult tickets first, then child, then senior
+        void addSeats(int row, int startSeat, int adultTickets, int childTickets, int seniorTickets) {
+            adultSeats.addRange(row, startSeat, adultTickets);
+            childSeats.addRange(row, startSeat + adultTickets, childTickets);
+            seniorSeats.addRange(row, startSeat + adultTickets + childTickets, seniorTickets);
+        }
+        
+        //Adds consecutive seats with the given ticket type for each seat, in seat order
+        void addSeats(int row, int startSeat, String ticketTypes) {
+            for (int i = 0; i < ticketTypes.length(); i++) {
+                switch (ticketTypes.charAt(i)) {
+                    case 'A': adultSeats.add(row, startSeat + i); break;
+                    case 'C': childSeats.add(row, startSeat + i); break;
+                    case 'S': seniorSeats.add(row, startSeat + i); break;
+                }
+            }
+        }
+    }
+}
@@ -6,6 +6,8 @@ public class Seat {
     private char seat;
     //Whether this seat is currently reserved
     private boolean reserved;
+    //Whether this seat is temporarily held while a customer decides
+    private boolean held;
     //Type of ticket for reserved seat (A=Adult, C=Child, S=Senior)
     //Unreserved seats use '.' as default
     private char ticketType;
@@ -35,8 +37,25 @@ public class Seat {
     }
     
     //Marks this seat as reserved
+    //A held seat becomes reserved when its hold is confirmed
     public void reserve() {
         this.reserved = true;
+        this.held = false;
+    }
+    
+    //Checks if this seat is temporarily held
+    public boolean isHeld() {
+        return held;
+    }
+    
+    //Holds this seat so it cannot be reserved by anyone else
+    public void hold() {
+        this.held = true;
+    }
+    
+    //Releases a hold on this seat, making it available again
+    public void release() {
+        this.held = false;
     }
     
     //Unreserves this seat, making it available again
@@ -0,0 +1,58 @@
+//One block of consecutive seats in a bulk reservation.
+//The block starts at a seat of one row and covers one seat per ticket type
+//character, in order, so "AAC" books two adult seats followed by a child seat.
+//The characters must be ticket types A, C or S.
+public class SeatBlock {
+    //Row of the block
+    private int row;
+    //First seat index of the block (0-based)
+    private int startSeat;
+    //Ticket type of each seat of the block, in seat order
+    private String ticketTypes;
+    //Order the seats are recorded against, may be null
+    private Customer.Order owner;
+    
+    //Constructor creates a block of seats for an order
+    public SeatBlock(int row, int startSeat, String ticketTypes, Customer.Order owner) {
+        this.row = row;
+        this.startSeat = startSeat;
+        this.ticketTypes = ticketTypes;
+        this.owner = owner;
+    }
+    
+    //Returns the row of the block
+    public int getRow() {
+        return row;
+    }
+    
+    //Returns the first seat index of the block
+    public int getStartSeat() {
+        return startSeat;
+    }
+    
+    //Returns the number of seats in the block
+    public int getNumberOfSeats() {
+        return ticketTypes.length();
+    }
+    
+    //Returns the ticket type of each seat of the block, in seat order
+    public String getTicketTypes() {
+        return ticketTypes;
+    }
+    
+    //Returns the number of seats of the block with a ticket type
+    public int getTicketCount(char ticketType) {
+        int count = 0;
+        for (int i = 0; i < ticketTypes.length(); i++) {
+            if (ticketTypes.charAt(i) == ticketType) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    //Returns the order the seats are recorded against, or null
+    public Customer.Order getOwner() {
+        return owner;
+    }
+}
@@ -0,0 +1,47 @@
+//Storage backend for the seats of an auditorium.
+//Rows are 1-indexed and seats are 0-indexed, matching the Auditorium methods.
+//Callers are expected to validate coordinates before calling into the grid.
+public interface SeatGrid {
+    //Returns the total number of rows in the grid
+    int getNumRows();
+    
+    //Returns the number of seats per row
+    int getSeatsPerRow();
+    
+    //Checks if a specific seat is reserved
+    boolean isReserved(int row, int seat);
+    
+    //Checks if a specific seat is temporarily held
+    boolean isHeld(int row, int seat);
+    
+    //Returns the ticket type of a seat, or '.' if it is not reserved
+    char getTicketType(int row, int seat);
+    
+    //Reserves a seat with the given ticket type, ending any hold on it
+    void reserve(int row, int seat, char ticketType);
+    
+    //Holds an open seat so it is no longer free
+    void hold(int row, int seat);
+    
+    //Releases a held seat, making it free again
+    void release(int row, int seat);
+    
+    //Unreserves a seat, making it available again
+    void unreserve(int row, int seat);
+    
+    //Held seats count as taken in the availability queries below
+    
+    //Checks if a range of consecutive seats in a row is free
+    boolean isRangeFree(int row, int startSeat, int numberOfSeats);
+    
+    //Returns the length of the longest run of consecutive free seats in a row
+    int getLongestFreeRun(int row);
+    
+    //Returns the length of the run of free seats a range of seats belongs to,
+    //counting the range itself as free, found by looking only at its neighbors
+    int getFreeRunAround(int row, int startSeat, int numberOfSeats);
+    
+    //Returns a bit mask of every starting seat in the row that begins a run
+    //of at least numberOfSeats free seats (bit s of word s / 64)
+    long[] findRunStarts(int row, int numberOfSeats);
+}
@@ -0,0 +1,312 @@
+import java.io.*;
+import java.util.*;
+
+//Randomized check that both seat grid backends give the same answers.
+//Random layouts are loaded into a linked and a bitset auditorium, and the same
+//random reservations, cancellations and holds are applied to both. After every
+//change findBestAvailable is compared for every party size against a plain
+//scan of a char array model, along with the counts, free runs and seat types.
+//Run with: java SeatGridCheck [seed] [layouts]
+//Prints the number of checks and exits with status 1 on the first mismatch.
+public class SeatGridCheck {
+    //Default number of random layouts to check
+    private static final int DEFAULT_LAYOUTS = 300;
+    //Number of random changes applied to each layout
+    private static final int CHANGES_PER_LAYOUT = 60;
+    //Hold length that no check run comes close to, so holds never expire mid-run
+    private static final long HOLD_MILLIS = 60 * 60 * 1000;
+    //Characters of the model: open seat, held seat, then the ticket types
+    private static final char OPEN = '.';
+    private static final char HELD = 'H';
+    private static final char[] TICKET_TYPES = {'A', 'C', 'S'};
+    
+    //Source of the random layouts and changes
+    private Random random;
+    //Temporary file the random layouts are written to
+    private File layoutFile;
+    //Number of comparisons made so far
+    private long checks = 0;
+    
+    //Linked auditorium under test
+    private Auditorium linked;
+    //Bitset auditorium under test
+    private Auditorium bitset;
+    //Expected state of every seat (index 0 is row 1)
+    private char[][] model;
+    //Holds active in the linked and bitset auditoriums, in matching order
+    private List<SeatHold> linkedHolds = new ArrayList<>();
+    private List<SeatHold> bitsetHolds = new ArrayList<>();
+    
+    //Constructor seeds the random layouts and changes
+    public SeatGridCheck(long seed, File layoutFile) {
+        this.random = new Random(seed);
+        this.layoutFile = layoutFile;
+    }
+    
+    //Runs the check on the given number of layouts from the given seed
+    public static void main(String[] args) throws IOException {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        int layouts = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LAYOUTS;
+        
+        File layoutFile = File.createTempFile("seatgridcheck", ".txt");
+        layoutFile.deleteOnExit();
+        
+        SeatGridCheck check = new SeatGridCheck(seed, layoutFile);
+        for (int i = 0; i < layouts; i++) {
+            check.checkLayout(i);
+        }
+        System.out.println("OK checks=" + check.checks);
+    }
+    
+    //Builds one random layout and checks both backends through a series of changes
+    private void checkLayout(int layout) throws IOException {
+        //Wide layouts cover rows spanning several bitset words
+        int numRows = 1 + random.nextInt(12);
+        int seatsPerRow = 1 + random.nextInt(random.nextBoolean() ? 150 : 26);
+        double fill = random.nextDouble();
+        
+        model = new char[numRows][seatsPerRow];
+        try (PrintWriter writer = new PrintWriter(layoutFile)) {
+            for (int r = 0; r < numRows; r++) {
+                for (int s = 0; s < seatsPerRow; s++) {
+                    model[r][s] = random.nextDouble() < fill ? randomTicketType() : OPEN;
+                }
+                writer.println(new String(model[r]));
+            }
+        }
+        
+        linked = new Auditorium(layoutFile.getPath(), 1, Auditorium.Backend.LINKED);
+        bitset = new Auditorium(layoutFile.getPath(), 1, Auditorium.Backend.BITSET);
+        linkedHolds.clear();
+        bitsetHolds.clear();
+        
+        compare(layout, "load");
+        for (int i = 0; i < CHANGES_PER_LAYOUT; i++) {
+            String change = applyRandomChange();
+            compare(layout, change);
+        }
+    }
+    
+    //Applies the same random change to both auditoriums and the model
+    //Returns a description of the change for mismatch reports
+    private String applyRandomChange() {
+        int numRows = model.length;
+        int seatsPerRow = model[0].length;
+        int row = 1 + random.nextInt(numRows);
+        int seat = random.nextInt(seatsPerRow);
+        int numberOfSeats = 1 + random.nextInt(Math.min(seatsPerRow, 8));
+        
+        switch (random.nextInt(6)) {
+            case 0: {
+                //Reserve a single seat directly, as restoring stored orders does,
+                //which fails if the seat is taken or held
+                char ticketType = randomTicketType();
+                boolean free = model[row - 1][seat] == OPEN;
+                expect(linked.reserveSeat(row, seat, ticketType) == free, "linked reserveSeat");
+                expect(bitset.reserveSeat(row, seat, ticketType) == free, "bitset reserveSeat");
+                if (free) {
+                    model[row - 1][seat] = ticketType;
+                }
+                return "reserveSeat " + row + " " + seat + " " + ticketType;
+            }
+            case 1: {
+                //Free a single seat, which does nothing for open or held seats
+                linked.unreserveSeat(row, seat);
+                bitset.unreserveSeat(row, seat);
+                if (model[row - 1][seat] != HELD) {
+                    model[row - 1][seat] = OPEN;
+                }
+                return "unreserveSeat " + row + " " + seat;
+            }
+            case 2: {
+                //Book the best block, as the best seat finder does
+                int[] best = linked.findBestAvailable(numberOfSeats);
+                if (best == null) {
+                    return "findBestAvailable " + numberOfSeats + " (none)";
+                }
+                expect(linked.reserveIfAvailable(best[0], best[1], numberOfSeats, 0, 0, null),
+                    "linked reserveIfAvailable");
+                expect(bitset.reserveIfAvailable(best[0], best[1], numberOfSeats, 0, 0, null),
+                    "bitset reserveIfAvailable");
+                for (int i = 0; i < numberOfSeats; i++) {
+                    model[best[0] - 1][best[1] + i] = 'A';
+                }
+                return "reserve best " + numberOfSeats + " at " + best[0] + " " + best[1];
+            }
+            case 3: {
+                //Try to book a specific block, which fails if any seat is taken
+                numberOfSeats = Math.min(numberOfSeats, seatsPerRow - seat);
+                boolean free = isFree(row, seat, numberOfSeats);
+                expect(linked.reserveIfAvailable(row, seat, 0, numberOfSeats, 0, null) == free,
+                    "linked reserveIfAvailable");
+                expect(bitset.reserveIfAvailable(row, seat, 0, numberOfSeats, 0, null) == free,
+                    "bitset reserveIfAvailable");
+                if (free) {
+                    for (int i = 0; i < numberOfSeats; i++) {
+                        model[row - 1][seat + i] = 'C';
+                    }
+                }
+                return "reserve " + row + " " + seat + " " + numberOfSeats;
+            }
+            case 4: {
+                //Hold a specific block, which fails if any seat is taken
+                numberOfSeats = Math.min(numberOfSeats, seatsPerRow - seat);
+                boolean free = isFree(row, seat, numberOfSeats);
+                SeatHold linkedHold = linked.holdIfAvailable(row, seat, numberOfSeats, HOLD_MILLIS);
+                SeatHold bitsetHold = bitset.holdIfAvailable(row, seat, numberOfSeats, HOLD_MILLIS);
+                expect((linkedHold != null) == free, "linked holdIfAvailable");
+                expect((bitsetHold != null) == free, "bitset holdIfAvailable");
+                if (free) {
+                    linkedHolds.add(linkedHold);
+                    bitsetHolds.add(bitsetHold);
+                    for (int i = 0; i < numberOfSeats; i++) {
+                        model[row - 1][seat + i] = HELD;
+                    }
+                }
+                return "hold " + row + " " + seat + " " + numberOfSeats;
+            }
+            default: {
+                //Release a random hold, keeping seats reserved over it since
+                if (linkedHolds.isEmpty()) {
+                    return "release (none)";
+                }
+                int index = random.nextInt(linkedHolds.size());
+                SeatHold hold = linkedHolds.remove(index);
+                linked.releaseHold(hold);
+                bitset.releaseHold(bitsetHolds.remove(index));
+                for (int i = 0; i < hold.getNumberOfSeats(); i++) {
+                    if (model[hold.getRow() - 1][hold.getStartSeat() + i] == HELD) {
+                        model[hold.getRow() - 1][hold.getStartSeat() + i] = OPEN;
+                    }
+                }
+                return "release " + hold.getRow() + " " + hold.getStartSeat() + " " + hold.getNumberOfSeats();
+            }
+        }
+    }
+    
+    //Compares both auditoriums with the model after a change
+    private void compare(int layout, String change) {
+        String where = "layout " + layout + " after " + change + ": ";
+        int numRows = model.length;
+        int seatsPerRow = model[0].length;
+        
+        //Every party size, including the invalid ones on either side
+        for (int n = 0; n <= seatsPerRow + 1; n++) {
+            int[] expected = findBestInModel(n);
+            String text = Arrays.toString(expected);
+            compareValue(where + "findBestAvailable(" + n + ")", text,
+                Arrays.toString(linked.findBestAvailable(n)), Arrays.toString(bitset.findBestAvailable(n)));
+        }
+        
+        int reserved = 0;
+        int[] typeCounts = new int[TICKET_TYPES.length];
+        for (int r = 1; r <= numRows; r++) {
+            int longestRun = 0;
+            int run = 0;
+            for (int s = 0; s < seatsPerRow; s++) {
+                char state = model[r - 1][s];
+                run = state == OPEN ? run + 1 : 0;
+                longestRun = Math.max(longestRun, run);
+                
+                for (int t = 0; t < TICKET_TYPES.length; t++) {
+                    if (state == TICKET_TYPES[t]) {
+                        reserved++;
+                        typeCounts[t]++;
+                    }
+                }
+                
+                String type = String.valueOf(state == HELD ? OPEN : state);
+                compareValue(where + "getSeatType(" + r + ", " + s + ")", type,
+                    String.valueOf(linked.getSeatType(r, s)), String.valueOf(bitset.getSeatType(r, s)));
+            }
+            compareValue(where + "getLongestFreeRun(" + r + ")", String.valueOf(longestRun),
+                String.valueOf(linked.getLongestFreeRun(r)), String.valueOf(bitset.getLongestFreeRun(r)));
+            
+            //A block at a random place of the row
+            int seat = random.nextInt(seatsPerRow);
+            int n = 1 + random.nextInt(seatsPerRow - seat);
+            compareValue(where + "checkAvailability(" + r + ", " + seat + ", " + n + ")",
+                String.valueOf(isFree(r, seat, n)), String.valueOf(linked.checkAvailability(r, seat, n)),
+                String.valueOf(bitset.checkAvailability(r, seat, n)));
+        }
+        
+        compareValue(where + "getReservedSeatCount", String.valueOf(reserved),
+            String.valueOf(linked.getReservedSeatCount()), String.valueOf(bitset.getReservedSeatCount()));
+        compareValue(where + "getOpenSeatCount", String.valueOf(numRows * seatsPerRow - reserved),
+            String.valueOf(linked.getOpenSeatCount()), String.valueOf(bitset.getOpenSeatCount()));
+        for (int t = 0; t < TICKET_TYPES.length; t++) {
+            compareValue(where + "getTicketTypeCount(" + TICKET_TYPES[t] + ")", String.valueOf(typeCounts[t]),
+                String.valueOf(linked.getTicketTypeCount(TICKET_TYPES[t])),
+                String.valueOf(bitset.getTicketTypeCount(TICKET_TYPES[t])));
+        }
+    }
+    
+    //Finds the best block in the model by trying every row and starting seat
+    //Distances are measured from the center of the block to the center of the
+    //auditorium, ties go to the lower row, then the lower seat
+    private int[] findBestInModel(int numberOfSeats) {
+        int numRows = model.length;
+        int seatsPerRow = model[0].length;
+        if (numberOfSeats <= 0 || numberOfSeats > seatsPerRow) {
+            return null;
+        }
+        
+        double centerRow = (numRows + 1) / 2.0;
+        double centerSeat = (seatsPerRow + 1) / 2.0;
+        double bestDistance = Double.MAX_VALUE;
+        int[] bestSeats = null;
+        
+        for (int r = 1; r <= numRows; r++) {
+            for (int s = 0; s <= seatsPerRow - numberOfSeats; s++) {
+                if (!isFree(r, s, numberOfSeats)) {
+                    continue;
+                }
+                double seatCenter = s + (numberOfSeats - 1) / 2.0 + 1;
+                double distance = Math.sqrt(Math.pow(r - centerRow, 2) + Math.pow(seatCenter - centerSeat, 2));
+                //Rows and seats are visited in increasing order, so only closer blocks replace the best
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestSeats = new int[]{r, s};
+                }
+            }
+        }
+        return bestSeats;
+    }
+    
+    //Checks if a block of seats is open in the model
+    private boolean isFree(int row, int startSeat, int numberOfSeats) {
+        for (int i = 0; i < numberOfSeats; i++) {
+            if (model[row - 1][startSeat + i] != OPEN) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    //Returns a random ticket type
+    private char randomTicketType() {
+        return TICKET_TYPES[random.nextInt(TICKET_TYPES.length)];
+    }
+    
+    //Counts one comparison of both backends against the expected value
+    private void compareValue(String what, String expected, String linkedValue, String bitsetValue) {
+        checks++;
+        if (!expected.equals(linkedValue) || !expected.equals(bitsetValue)) {
+            fail(what + " expected " + expected + ", linked " + linkedValue + ", bitset " + bitsetValue);
+        }
+    }
+    
+    //Counts one condition that must hold
+    private void expect(boolean condition, String what) {
+        checks++;
+        if (!condition) {
+            fail(what + " disagrees with the model");
+        }
+    }
+    
+    //Reports a mismatch and stops the check
+    private static void fail(String message) {
+        System.err.println("MISMATCH " + message);
+        System.exit(1);
+    }
+}
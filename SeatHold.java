@@ -0,0 +1,76 @@
+import java.util.concurrent.atomic.*;
+
+//A temporary hold on a block of consecutive seats in one row.
+//Held seats cannot be booked by anyone else until the hold is confirmed,
+//released, or reaches its deadline and is expired by the timer wheel.
+public class SeatHold {
+    //The hold is waiting for an answer
+    private static final int ACTIVE = 0;
+    //The held seats were turned into a reservation
+    private static final int CONFIRMED = 1;
+    //The hold was given up before its deadline
+    private static final int RELEASED = 2;
+    //The hold reached its deadline
+    private static final int EXPIRED = 3;
+    
+    //Row of the held seats
+    private int row;
+    //First held seat index (0-based)
+    private int startSeat;
+    //Number of consecutive seats held
+    private int numberOfSeats;
+    //Timer wheel tick at which the hold expires
+    private long deadlineTick;
+    //Next hold in the same timer wheel slot
+    SeatHold nextInSlot;
+    //Current state, changed once from ACTIVE to one of the final states
+    private AtomicInteger state = new AtomicInteger(ACTIVE);
+    
+    //Constructor creates an active hold on a block of seats
+    public SeatHold(int row, int startSeat, int numberOfSeats, long deadlineTick) {
+        this.row = row;
+        this.startSeat = startSeat;
+        this.numberOfSeats = numberOfSeats;
+        this.deadlineTick = deadlineTick;
+    }
+    
+    //Returns the row of the held seats
+    public int getRow() {
+        return row;
+    }
+    
+    //Returns the first held seat index (0-based)
+    public int getStartSeat() {
+        return startSeat;
+    }
+    
+    //Returns the number of consecutive seats held
+    public int getNumberOfSeats() {
+        return numberOfSeats;
+    }
+    
+    //Returns the timer wheel tick at which the hold expires
+    public long getDeadlineTick() {
+        return deadlineTick;
+    }
+    
+    //Checks if the hold is still waiting to be confirmed or released
+    public boolean isActive() {
+        return state.get() == ACTIVE;
+    }
+    
+    //Claims the hold for confirmation, returns false if it already ended
+    boolean markConfirmed() {
+        return state.compareAndSet(ACTIVE, CONFIRMED);
+    }
+    
+    //Claims the hold for release, returns false if it already ended
+    boolean markReleased() {
+        return state.compareAndSet(ACTIVE, RELEASED);
+    }
+    
+    //Claims the hold for expiry, returns false if it already ended
+    boolean markExpired() {
+        return state.compareAndSet(ACTIVE, EXPIRED);
+    }
+}
@@ -0,0 +1,127 @@
+import java.util.*;
+
+//Compact set of seats stored as packed int codes in a sorted array.
+//A code holds the row in its high 16 bits and the 0-based seat index in
+//its low 16 bits, so sorting the codes keeps the seats in row-major order.
+public class SeatSet {
+    //Largest row that keeps a packed code positive, so codes sort by row
+    private static final int MAX_ROW = 0x7FFF;
+    //Largest 0-based seat index that fits in a packed code
+    private static final int MAX_SEAT = 0xFFFF;
+    
+    //Packed seat codes in ascending order, only the first size are used
+    private int[] codes;
+    //Number of seats in the set
+    private int size;
+    
+    //Constructor creates an empty set
+    public SeatSet() {
+        this.codes = new int[4];
+        this.size = 0;
+    }
+    
+    //Packs a row and 0-based seat index into one code
+    public static int pack(int row, int seat) {
+        return (row << 16) | seat;
+    }
+    
+    //Returns the row of a packed code
+    public static int rowOf(int code) {
+        return code >>> 16;
+    }
+    
+    //Returns the 0-based seat index of a packed code
+    public static int seatOf(int code) {
+        return code & MAX_SEAT;
+    }
+    
+    //Returns the number of seats in the set
+    public int size() {
+        return size;
+    }
+    
+    //Checks if the set has no seats
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    //Returns the packed code at a position in row-major order
+    public int getCode(int index) {
+        return codes[index];
+    }
+    
+    //Appends the seats as a comma-separated list such as "2A,2B,3C"
+    //Characters are written straight into the buffer, so no temporary strings are made
+    public void appendTo(StringBuilder out) {
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(rowOf(codes[i])).append((char) ('A' + seatOf(codes[i])));
+        }
+    }
+    
+    //Checks if the set contains a seat
+    public boolean contains(int row, int seat) {
+        if (!fits(row, seat)) {
+            return false;
+        }
+        return Arrays.binarySearch(codes, 0, size, pack(row, seat)) >= 0;
+    }
+    
+    //Adds a seat to the set, returns false if it was already present
+    public boolean add(int row, int seat) {
+        if (!fits(row, seat)) {
+            return false;
+        }
+        
+        int code = pack(row, seat);
+        int index = Arrays.binarySearch(codes, 0, size, code);
+        if (index >= 0) {
+            return false;
+        }
+        
+        //Open a gap at the insertion point, growing the array if needed
+        index = -index - 1;
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        System.arraycopy(codes, index, codes, index + 1, size - index);
+        codes[index] = code;
+        size++;
+        return true;
+    }
+    
+    //Adds a block of consecutive seats in one row
+    public void addRange(int row, int startSeat, int numberOfSeats) {
+        for (int i = 0; i < numberOfSeats; i++) {
+            add(row, startSeat + i);
+        }
+    }
+    
+    //Removes a seat from the set, returns false if it was not present
+    public boolean remove(int row, int seat) {
+        if (!fits(row, seat)) {
+            return false;
+        }
+        
+        int index = Arrays.binarySearch(codes, 0, size, pack(row, seat));
+        if (index < 0) {
+            return false;
+        }
+        
+        System.arraycopy(codes, index + 1, codes, index, size - index - 1);
+        size--;
+        return true;
+    }
+    
+    //Removes every seat from the set
+    public void clear() {
+        size = 0;
+    }
+    
+    //Checks if a row and seat can be packed into a code
+    private static boolean fits(int row, int seat) {
+        return row >= 0 && row <= MAX_ROW && seat >= 0 && seat <= MAX_SEAT;
+    }
+}
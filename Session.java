@@ -0,0 +1,687 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+//One user's session at a terminal: the login prompt and the customer and
+//admin menus. Each session has its own console and logged in user, while the
+//auditoriums, customers and stores are shared through the box office, so many
+//sessions can run at the same time on different threads.
+public class Session {
+    //How long suggested seats are held while the customer answers (2 minutes)
+    private static final long HOLD_MILLIS = 120000;
+    
+    //Order operations shared by every session
+    private BoxOffice boxOffice;
+    //Console this session reads from and prints to
+    private Console console;
+    //Currently logged in user
+    private String currentUser = null;
+    //Whether the admin chose Exit, which ends the whole program
+    private boolean exitRequested = false;
+    //Line separator appended to order lines built in the buffer, as println uses
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    
+    //Reusable buffer for building order lines, cleared before each use
+    //Order lists are built here under the customer's lock and printed after it is
+    //released, so a slow terminal never keeps the customer's other sessions waiting
+    private final StringBuilder lineBuffer = new StringBuilder(128);
+    
+    //Constructor creates a session on a console, with nobody logged in
+    public Session(BoxOffice boxOffice, Console console) {
+        this.boxOffice = boxOffice;
+        this.console = console;
+    }
+    
+    //Runs the session from the login prompt until the input ends, the last
+    //user logs out without logging in again, or the admin chooses Exit
+    public void run() {
+        loginPrompt();
+    }
+    
+    //Checks if the admin chose Exit in this session
+    public boolean isExitRequested() {
+        return exitRequested;
+    }
+    
+    //Handles user login process.
+    //Provides 3 attempts for password entry and routes to appropriate menu.
+    private void loginPrompt() {
+        boolean loggedIn = false;
+        
+        while (!loggedIn && console.hasNextLine()) {
+            console.print("Username: ");
+            if (!console.hasNextLine()) return;
+            String username = console.nextLine();
+            
+            if (boxOffice.getCustomer(username) != null) {
+                boolean validPassword = false;
+                int attempts = 0;
+                
+                while (!validPassword && attempts < 3 && console.hasNextLine()) {
+                    console.print("Password: ");
+                    if (!console.hasNextLine()) return;
+                    String password = console.nextLine();
+                    
+                    if (boxOffice.getCustomer(username).getPassword().equals(password)) {
+                        currentUser = username;
+                        validPassword = true;
+                        loggedIn = true;
+                        boxOffice.loadStoredOrders(boxOffice.getCustomer(username));
+                        
+                        //Route to appropriate menu based on user type
+                        if (username.equals("admin")) {
+                            adminMenu();
+                        } else {
+                            customerMenu();
+                        }
+                    } else {
+                        console.println("Invalid password");
+                        attempts++;
+                    }
+                }
+            } else {
+                console.println("Username not found");
+            }
+        }
+    }
+    
+    //Displays and handles the customer menu options.
+    private void customerMenu() {
+        boolean logout = false;
+        
+        while (!logout && console.hasNextLine()) {
+            console.println("\n1. Reserve Seats");
+            console.println("2. View Orders");
+            console.println("3. Update Order");
+            console.println("4. Display Receipt");
+            console.println("5. Log Out");
+            
+            if (!console.hasNextLine()) return;
+            int choice = getValidIntInput(1, 5);
+            
+            switch (choice) {
+                case 1:
+                    reserveSeats();
+                    break;
+                case 2:
+                    viewOrders();
+                    break;
+                case 3:
+                    updateOrder();
+                    break;
+                case 4:
+                    displayReceipt();
+                    break;
+                case 5:
+                    logout = true;
+                    currentUser = null;
+                    loginPrompt();
+                    break;
+            }
+        }
+    }
+    
+    //Displays and handles the admin menu options.
+    private void adminMenu() {
+        boolean logout = false;
+        
+        while (!logout && console.hasNextLine()) {
+            console.println("\n1. Print Report");
+            console.println("2. Logout");
+            console.println("3. Exit");
+            console.println("4. Find Seat Holder");
+            
+            if (!console.hasNextLine()) return;
+            int choice = getValidIntInput(1, 4);
+            
+            switch (choice) {
+                case 1:
+                    printReport();
+                    break;
+                case 2:
+                    logout = true;
+                    currentUser = null;
+                    loginPrompt();
+                    break;
+                case 3:
+                    //The caller saves the auditoriums and ends the program
+                    logout = true;
+                    currentUser = null;
+                    exitRequested = true;
+                    break;
+                case 4:
+                    findSeatHolder();
+                    break;
+            }
+        }
+    }
+    
+    //Shows which customer holds a seat using the auditorium's ownership index,
+    //or the order store for customers who have not logged in yet.
+    private void findSeatHolder() {
+        console.println("\n1. Auditorium 1");
+        console.println("2. Auditorium 2");
+        console.println("3. Auditorium 3");
+        
+        if (!console.hasNextLine()) return;
+        int auditoriumNumber = getValidIntInput(1, 3);
+        Auditorium auditorium = boxOffice.getAuditorium(auditoriumNumber);
+        
+        if (!console.hasNextLine()) return;
+        int rowNumber = getValidRowInput(auditorium);
+        if (!console.hasNextLine()) return;
+        char seat = getValidSeatInput(auditorium);
+        int seatIndex = seat - 'A';
+        
+        String holder = boxOffice.findSeatHolder(auditoriumNumber, rowNumber, seatIndex);
+        if (holder != null) {
+            console.println("Seat " + rowNumber + seat + " is held by " + holder);
+        } else if (auditorium.getSeatType(rowNumber, seatIndex) != '.') {
+            console.println("Seat " + rowNumber + seat + " is reserved with no order");
+        } else {
+            console.println("Seat " + rowNumber + seat + " is not reserved");
+        }
+    }
+    
+    //Validates integer input within a specified range.
+    //Minimum valid value: min
+    //Maximum valid value: max
+    //Returns valid integer input
+    private int getValidIntInput(int min, int max) {
+        int input = 0;
+        boolean validInput = false;
+        
+        while (!validInput && console.hasNextLine()) {
+            try {
+                input = Integer.parseInt(console.nextLine());
+                
+                if (input >= min && input <= max) {
+                    validInput = true;
+                } else {
+                    console.println("Invalid input");
+                }
+            } catch (NumberFormatException e) {
+                console.println("Invalid input");
+            }
+        }
+        
+        return input;
+    }
+    
+    //Handles the seat reservation process.
+    //Allows users to select auditorium, row, seat, and ticket quantities.
+    private void reserveSeats() {
+        console.println("\n1. Auditorium 1");
+        console.println("2. Auditorium 2");
+        console.println("3. Auditorium 3");
+        
+        if (!console.hasNextLine()) return;
+        int auditoriumChoice = getValidIntInput(1, 3);
+        Auditorium selectedAuditorium = boxOffice.getAuditorium(auditoriumChoice);
+        
+        //Display current seating arrangement
+        selectedAuditorium.display(console);
+        
+        //Get seat selection and ticket quantities
+        if (!console.hasNextLine()) return;
+        int rowNumber = getValidRowInput(selectedAuditorium);
+        if (!console.hasNextLine()) return;
+        char startingSeat = getValidSeatInput(selectedAuditorium);
+        if (!console.hasNextLine()) return;
+        int adultTickets = getValidTicketInput("adult");
+        if (!console.hasNextLine()) return;
+        int childTickets = getValidTicketInput("child");
+        if (!console.hasNextLine()) return;
+        int seniorTickets = getValidTicketInput("senior");
+        
+        int totalTickets = adultTickets + childTickets + seniorTickets;
+        
+        if (totalTickets == 0) {
+            console.println("No tickets selected. Returning to main menu.");
+            return;
+        }
+        
+        int seatIndex = startingSeat - 'A';
+        Customer customer = boxOffice.getCustomer(currentUser);
+        
+        //Reserve requested seats if they are all available
+        Customer.Order order;
+        try {
+            order = boxOffice.reserve(customer, auditoriumChoice, rowNumber, seatIndex, 
+                adultTickets, childTickets, seniorTickets);
+        } catch (IOException e) {
+            printSaveError(e);
+            return;
+        }
+        
+        if (order == null) {
+            //Find alternative available seats and hold them while the customer decides
+            SeatHold hold = selectedAuditorium.holdBestAvailable(totalTickets, HOLD_MILLIS);
+            
+            if (hold != null) {
+                int bestRow = hold.getRow();
+                int bestSeat = hold.getStartSeat();
+                char bestSeatLetter = (char)('A' + bestSeat);
+                char lastSeatLetter = (char)('A' + bestSeat + totalTickets - 1);
+                
+                try {
+                    console.println("The selected seats are not available.");
+                    console.println("Best available seats: " + bestRow + bestSeatLetter + "-" + bestRow + lastSeatLetter);
+                    console.print("Would you like these seats? (Y/N): ");
+                    
+                    if (console.hasNextLine()) {
+                        String response = console.nextLine().toUpperCase();
+                        
+                        while (!response.equals("Y") && !response.equals("N") && console.hasNextLine()) {
+                            console.println("Invalid input");
+                            if (!console.hasNextLine()) return;
+                            response = console.nextLine().toUpperCase();
+                        }
+                        
+                        if (response.equals("Y")) {
+                            //The hold may have expired while waiting for the answer
+                            try {
+                                if (boxOffice.confirmHold(customer, auditoriumChoice, hold, 
+                                    adultTickets, childTickets, seniorTickets) == null) {
+                                    console.println("The seats are not available.");
+                                }
+                            } catch (IOException e) {
+                                printSaveError(e);
+                            }
+                        } else {
+                            console.println("Reservation canceled. Returning to main menu.");
+                        }
+                    }
+                } finally {
+                    //Give the held seats back unless they were confirmed
+                    selectedAuditorium.releaseHold(hold);
+                }
+            } else {
+                console.println("no seats available");
+            }
+        }
+    }
+    
+    //Validates row number input.
+    //auditorium: The auditorium to check against
+    //Returns valid row number
+    private int getValidRowInput(Auditorium auditorium) {
+        int rows = auditorium.getNumRows();
+        int row = 0;
+        boolean validInput = false;
+        
+        while (!validInput && console.hasNextLine()) {
+            try {
+                console.print("Enter Row: ");
+                if (!console.hasNextLine()) return row;
+                row = Integer.parseInt(console.nextLine());
+                
+                if (row >= 1 && row <= rows) {
+                    validInput = true;
+                } else {
+                    console.println("Invalid input");
+                }
+            } catch (NumberFormatException e) {
+                console.println("Invalid input");
+            }
+        }
+        
+        return row;
+    }
+    
+    //Validates seat letter input.
+    //auditorium: The auditorium to check against
+    //Returns valid seat letter
+    private char getValidSeatInput(Auditorium auditorium) {
+        int seatsPerRow = auditorium.getSeatsPerRow();
+        char seat = ' ';
+        boolean validInput = false;
+        
+        while (!validInput && console.hasNextLine()) {
+            console.print("Enter Seat: ");
+            if (!console.hasNextLine()) return seat;
+            String input = console.nextLine().toUpperCase();
+            
+            if (input.length() == 1) {
+                seat = input.charAt(0);
+                int seatIndex = seat - 'A';
+                
+                if (seatIndex >= 0 && seatIndex < seatsPerRow) {
+                    validInput = true;
+                } else {
+                    console.println("Invalid input");
+                }
+            } else {
+                console.println("Invalid input");
+            }
+        }
+        
+        return seat;
+    }
+    
+    //Validates ticket quantity input.
+    //ticketType: Type of ticket (adult, child, senior)
+    //Returns valid number of tickets
+    private int getValidTicketInput(String ticketType) {
+        int tickets = -1;
+        boolean validInput = false;
+        
+        while (!validInput && console.hasNextLine()) {
+            try {
+                console.print("Enter number of " + ticketType + " tickets: ");
+                if (!console.hasNextLine()) return tickets;
+                tickets = Integer.parseInt(console.nextLine());
+                
+                if (tickets >= 0) {
+                    validInput = true;
+                } else {
+                    console.println("Invalid input");
+                }
+            } catch (NumberFormatException e) {
+                console.println("Invalid input");
+            }
+        }
+        
+        return tickets;
+    }
+    
+    //Displays all orders for the current customer.
+    private void viewOrders() {
+        Customer customer = boxOffice.getCustomer(currentUser);
+        
+        //Other sessions of the same customer change its orders under its lock
+        lineBuffer.setLength(0);
+        ReentrantLock lock = customer.getLock();
+        lock.lock();
+        try {
+            List<Customer.Order> orders = customer.getOrders();
+            
+            if (orders.isEmpty()) {
+                lineBuffer.append("No orders").append(LINE_SEPARATOR);
+            }
+            
+            for (Customer.Order order : orders) {
+                appendOrder(lineBuffer, order);
+            }
+        } finally {
+            lock.unlock();
+        }
+        console.print(lineBuffer);
+    }
+    
+    //Appends the details of a single order as two lines.
+    //out: The buffer to append to
+    //order: The order to display
+    private void appendOrder(StringBuilder out, Customer.Order order) {
+        appendOrderSeats(out, order);
+        out.append(LINE_SEPARATOR);
+        out.append(order.getAdultTickets()).append(" adult, ")
+            .append(order.getChildTickets()).append(" child, ")
+            .append(order.getSeniorTickets()).append(" senior").append(LINE_SEPARATOR);
+    }
+    
+    //Appends the auditorium and currently reserved seats of an order, such as
+    //"Auditorium 1, 2A,2B". The seats are already in row and column order.
+    //out: The buffer to append to
+    //order: The order to list
+    private void appendOrderSeats(StringBuilder out, Customer.Order order) {
+        out.append("Auditorium ").append(order.getAuditoriumNumber()).append(", ");
+        order.getSeats().appendTo(out);
+    }
+    
+    //Allows customers to modify their existing orders.
+    //Options include adding tickets, deleting tickets, or canceling the order.
+    private void updateOrder() {
+        Customer customer = boxOffice.getCustomer(currentUser);
+        List<Customer.Order> orders;
+        
+        //Copy and list the orders under the customer's lock, since other
+        //sessions of the same customer may change them while this one waits
+        lineBuffer.setLength(0);
+        ReentrantLock lock = customer.getLock();
+        lock.lock();
+        try {
+            orders = new ArrayList<>(customer.getOrders());
+            
+            //List all orders for selection
+            for (int i = 0; i < orders.size(); i++) {
+                lineBuffer.append(i + 1).append(". ");
+                appendOrderSeats(lineBuffer, orders.get(i));
+                lineBuffer.append(LINE_SEPARATOR);
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        if (orders.isEmpty()) {
+            console.println("No orders");
+            return;
+        }
+        console.print(lineBuffer);
+        
+        if (!console.hasNextLine()) return;
+        int orderChoice = getValidIntInput(1, orders.size());
+        Customer.Order selectedOrder = orders.get(orderChoice - 1);
+        
+        boolean done = false;
+        while (!done && console.hasNextLine()) {
+            console.println("\n1. Add tickets to order");
+            console.println("2. Delete tickets from order");
+            console.println("3. Cancel Order");
+            
+            if (!console.hasNextLine()) return;
+            int updateChoice = getValidIntInput(1, 3);
+            
+            switch (updateChoice) {
+                case 1:
+                    addTicketsToOrder(selectedOrder);
+                    done = true;
+                    break;
+                case 2:
+                    deleteTicketsFromOrder(selectedOrder);
+                    done = true;
+                    break;
+                case 3:
+                    cancelOrder(selectedOrder);
+                    done = true;
+                    break;
+            }
+        }
+    }
+    
+    //Adds additional tickets to an existing order.
+    //order: The order to add tickets to
+    private void addTicketsToOrder(Customer.Order order) {
+        int auditoriumNumber = order.getAuditoriumNumber();
+        Auditorium auditorium = boxOffice.getAuditorium(auditoriumNumber);
+        
+        auditorium.display(console);
+        
+        //Get seat selection for additional tickets
+        if (!console.hasNextLine()) return;
+        int rowNumber = getValidRowInput(auditorium);
+        if (!console.hasNextLine()) return;
+        char startingSeat = getValidSeatInput(auditorium);
+        if (!console.hasNextLine()) return;
+        int adultTickets = getValidTicketInput("adult");
+        if (!console.hasNextLine()) return;
+        int childTickets = getValidTicketInput("child");
+        if (!console.hasNextLine()) return;
+        int seniorTickets = getValidTicketInput("senior");
+        
+        int totalTickets = adultTickets + childTickets + seniorTickets;
+        
+        if (totalTickets == 0) {
+            console.println("No tickets selected. Returning to update menu.");
+            return;
+        }
+        
+        int seatIndex = startingSeat - 'A';
+        
+        //Check availability and reserve seats in one step
+        try {
+            if (!boxOffice.addTickets(order, rowNumber, seatIndex, 
+                adultTickets, childTickets, seniorTickets)) {
+                console.println("The seats are not available.");
+            }
+        } catch (IOException e) {
+            printSaveError(e);
+        }
+    }
+    
+    //Deletes specific tickets from an order.
+    //order: The order to remove tickets from
+    private void deleteTicketsFromOrder(Customer.Order order) {
+        int rowToRemove = 0;
+        char seatToRemove = ' ';
+        boolean validInput = false;
+        
+        //Get seat to remove
+        while (!validInput && console.hasNextLine()) {            
+            try {
+                console.print("Enter Row: ");
+                if (!console.hasNextLine()) return;
+                rowToRemove = Integer.parseInt(console.nextLine());
+                
+                console.print("Enter Seat: ");
+                if (!console.hasNextLine()) return;
+                String input = console.nextLine().toUpperCase();
+                if (input.length() != 1) {
+                    console.println("Invalid input");
+                    continue;
+                }
+                
+                seatToRemove = input.charAt(0);
+                validInput = true;
+            } catch (NumberFormatException e) {
+                console.println("Invalid input");
+            }
+        }
+        
+        int seatIndexToRemove = seatToRemove - 'A';
+        
+        //Unreserve seat and update order, removing it if no tickets remain
+        try {
+            if (!boxOffice.deleteSeat(order, rowToRemove, seatIndexToRemove)) {
+                console.println("Invalid selection");
+            }
+        } catch (IOException e) {
+            printSaveError(e);
+        }
+    }
+    
+    //Cancels an entire order and unreserves all its seats.
+    //order: The order to cancel
+    private void cancelOrder(Customer.Order order) {
+        try {
+            boxOffice.cancel(order);
+        } catch (IOException e) {
+            printSaveError(e);
+        }
+    }
+    
+    //Tells the user that an order change was refused because it could not be saved
+    private void printSaveError(IOException e) {
+        console.println("The order could not be saved: " + e.getMessage());
+    }
+    
+    //Displays a receipt with all the customer's orders and total cost.
+    //Ticket prices come from the Pricing tables of each order's auditorium
+    private void displayReceipt() {
+        Customer customer = boxOffice.getCustomer(currentUser);
+        
+        //Other sessions of the same customer change its orders under its lock
+        lineBuffer.setLength(0);
+        ReentrantLock lock = customer.getLock();
+        lock.lock();
+        try {
+            List<Customer.Order> orders = customer.getOrders();
+            
+            if (orders.isEmpty()) {
+                lineBuffer.append("No orders").append(LINE_SEPARATOR);
+                lineBuffer.append("Customer Total: $0.00\n");
+            } else {
+                //Totals are kept up to date by Customer, so they are only printed here
+                for (Customer.Order order : orders) {
+                    appendOrder(lineBuffer, order);
+                    lineBuffer.append("Order Total: $");
+                    appendCents(lineBuffer, order.getTotalCents());
+                    lineBuffer.append(LINE_SEPARATOR).append(LINE_SEPARATOR);
+                }
+                
+                lineBuffer.append("Customer Total: $");
+                appendCents(lineBuffer, customer.getTotalCents());
+                lineBuffer.append(LINE_SEPARATOR);
+            }
+        } finally {
+            lock.unlock();
+        }
+        console.print(lineBuffer);
+    }
+    
+    //Appends an amount of cents as dollars with two decimals, such as "7.50".
+    //out: The buffer to append to
+    //cents: The non-negative amount in cents
+    private void appendCents(StringBuilder out, long cents) {
+        long remainder = cents % 100;
+        out.append(cents / 100).append('.');
+        if (remainder < 10) {
+            out.append('0');
+        }
+        out.append(remainder);
+    }
+    
+    //Generates a comprehensive report for all auditoriums.
+    //Shows open seats, reserved seats, ticket type counts, and total sales.
+    private void printReport() {
+        int totalOpen = 0;
+        int totalReserved = 0;
+        int totalAdult = 0;
+        int totalChild = 0;
+        int totalSenior = 0;
+        long totalSales = 0;
+        
+        //Generate report for each auditorium
+        for (int i = 0; i < boxOffice.getAuditoriumCount(); i++) {
+            Auditorium a = boxOffice.getAuditorium(i + 1);
+            int open = a.getOpenSeatCount();
+            int reserved = a.getReservedSeatCount();
+            int adult = a.getTicketTypeCount('A');
+            int child = a.getTicketTypeCount('C');
+            int senior = a.getTicketTypeCount('S');
+            long sales = Pricing.getRevenueCents(a);
+            
+            //Update totals
+            totalOpen += open;
+            totalReserved += reserved;
+            totalAdult += adult;
+            totalChild += child;
+            totalSenior += senior;
+            totalSales += sales;
+            
+            //Print auditorium details
+            console.print("Auditorium " + (i + 1));
+            console.print("\t" + open);
+            console.print("\t" + reserved);
+            console.print("\t" + adult);
+            console.print("\t" + child);
+            console.print("\t" + senior);
+            lineBuffer.setLength(0);
+            lineBuffer.append("\t$");
+            appendCents(lineBuffer, sales);
+            console.println(lineBuffer);
+        }
+        
+        //Print totals
+        console.print("Total");
+        console.print("\t" + totalOpen);
+        console.print("\t" + totalReserved);
+        console.print("\t" + totalAdult);
+        console.print("\t" + totalChild);
+        console.print("\t" + totalSenior);
+        lineBuffer.setLength(0);
+        lineBuffer.append("\t$");
+        appendCents(lineBuffer, totalSales);
+        console.println(lineBuffer);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+//Serves the login prompt and menus to many terminals at once over TCP.
+//The server listens on the loopback address only. Every connection gets its
+//own Session and Console and runs on its own thread: a virtual thread when
+//the JDK has them (21 and later), otherwise a thread from a cached pool.
+//All sessions share the auditoriums, customers and stores of one box office.
+public class SessionServer {
+    //Size of each connection's console buffers, small since thousands may be open
+    private static final int CONSOLE_BUFFER_SIZE = 4096;
+    //Number of connections that may wait to be accepted
+    private static final int BACKLOG = 1024;
+    
+    //Order operations shared by every session
+    private BoxOffice boxOffice;
+    //Socket accepting new connections
+    private ServerSocket serverSocket;
+    //Runs one task per connected session
+    private ExecutorService sessions;
+    //Whether the admin chose Exit in one of the sessions
+    private volatile boolean exitRequested = false;
+    
+    //Constructor starts listening on a loopback port, 0 picks a free port
+    public SessionServer(BoxOffice boxOffice, int port) throws IOException {
+        this.boxOffice = boxOffice;
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.sessions = newSessionExecutor();
+    }
+    
+    //Returns the port the server is listening on
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    //Checks if the admin chose Exit in one of the sessions
+    public boolean isExitRequested() {
+        return exitRequested;
+    }
+    
+    //Accepts connections and starts a session for each one
+    //Returns once the server is stopped
+    public void run() {
+        try {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    sessions.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    //Closing the server socket ends the accept loop
+                    if (!serverSocket.isClosed()) {
+                        System.err.println("Error accepting connection: " + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            sessions.shutdown();
+        }
+    }
+    
+    //Stops accepting connections, ending run
+    //Sessions that are already connected keep running
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing server socket: " + e.getMessage());
+        }
+    }
+    
+    //Runs one session over a connection until the terminal disconnects or logs out
+    private void serve(Socket socket) {
+        try (Socket connection = socket) {
+            connection.setTcpNoDelay(true);
+            Console console = new Console(connection.getInputStream(),
+                new PrintStream(connection.getOutputStream()), CONSOLE_BUFFER_SIZE);
+            Session session = new Session(boxOffice, console);
+            session.run();
+            console.flush();
+            
+            if (session.isExitRequested()) {
+                exitRequested = true;
+                stop();
+            }
+        } catch (IOException e) {
+            //The terminal disconnected
+        }
+    }
+    
+    //Returns an executor that starts a virtual thread per session if the JDK
+    //supports them, looked up by reflection so the code still builds on older
+    //JDKs, and a cached thread pool otherwise
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+//Loads the user database into the user map using several threads.
+//The file is memory-mapped and cut into chunks at line breaks. Each chunk is
+//scanned on its own thread straight out of the mapping, looking for spaces
+//and line breaks byte by byte, so the file is never copied onto the heap and
+//no per-line strings or arrays are made; only the username and password of
+//each line become strings. The map is pre-sized from the file length and then
+//filled in parallel, with every worker taking the usernames of one hash
+//partition, so the lines for one username are always applied in file order by
+//the same worker and the last one wins. The parse already sorts each chunk's
+//lines into their partitions, so a worker only visits the lines it inserts.
+public class UserLoader {
+    //Smallest chunk of the file worth parsing on its own thread
+    private static final int MIN_CHUNK_BYTES = 1 << 16;
+    //Largest chunk mapped at once (a mapping is limited to 2 GB)
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+    //Number of bytes at the start of the file used to estimate the line count
+    private static final int SAMPLE_BYTES = 1 << 16;
+    
+    //Reads the user database and adds a customer for every valid line
+    //Each line holds a username and a password separated by a space
+    //Returns the number of valid lines
+    public static int load(String filename, ConcurrentHashmap userMap, ExecutorService pool,
+        int parallelism) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            
+            //Size the map for the expected number of users up front
+            userMap.ensureCapacity(estimateLineCount(channel, size));
+            
+            //Cut the file into chunks that each end at a line break
+            int chunkCount = (int) Math.max((size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES,
+                Math.max(1, Math.min(parallelism, size / MIN_CHUNK_BYTES)));
+            long[] bounds = new long[chunkCount + 1];
+            for (int i = 1; i < chunkCount; i++) {
+                bounds[i] = nextLineStart(channel, Math.max(bounds[i - 1], size * i / chunkCount), size);
+            }
+            bounds[chunkCount] = size;
+            
+            //Parse every chunk into username and password pairs, one list per partition
+            List<Future<List<List<String>>>> parsed = new ArrayList<>();
+            for (int i = 0; i < chunkCount; i++) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+                parsed.add(pool.submit(() -> parseChunk(chunk, parallelism)));
+            }
+            List<List<List<String>>> chunks = new ArrayList<>();
+            for (Future<List<List<String>>> future : parsed) {
+                chunks.add(await(future));
+            }
+            
+            //Fill the map, each worker inserting the usernames of its own partition
+            List<Future<?>> inserts = new ArrayList<>();
+            for (int worker = 0; worker < parallelism; worker++) {
+                int partition = worker;
+                inserts.add(pool.submit(() -> insertPartition(chunks, userMap, partition)));
+            }
+            for (Future<?> future : inserts) {
+                await(future);
+            }
+            
+            int valid = 0;
+            for (List<List<String>> chunk : chunks) {
+                for (List<String> pairs : chunk) {
+                    valid += pairs.size() / 2;
+                }
+            }
+            return valid;
+        }
+    }
+    
+    //Estimates the number of lines from the average line length at the start of the file
+    private static int estimateLineCount(FileChannel channel, long size) throws IOException {
+        ByteBuffer sample = ByteBuffer.allocate((int) Math.min(SAMPLE_BYTES, size));
+        while (sample.hasRemaining() && channel.read(sample, sample.position()) > 0) {
+            //Keep reading until the sample is full
+        }
+        
+        int lines = 0;
+        for (int i = 0; i < sample.position(); i++) {
+            if (sample.get(i) == '\n') {
+                lines++;
+            }
+        }
+        if (lines == 0) {
+            return 1;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size * lines / sample.position());
+    }
+    
+    //Returns the position just after the first line break at or after position
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+    
+    //Parses the lines of a chunk into alternating usernames and passwords, with one
+    //list for each hash partition of the usernames, each in file order
+    //Matches line.split(" "): the username ends at the first space, the password at
+    //the next one, and lines with nothing but spaces after the username are skipped
+    private static List<List<String>> parseChunk(ByteBuffer data, int partitions) {
+        List<List<String>> buckets = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        //Scratch space for decoding one field at a time
+        byte[] field = new byte[64];
+        int end = data.limit();
+        int lineStart = 0;
+        
+        while (lineStart < end) {
+            //Find the end of the line, dropping a \r before the \n
+            int lineEnd = lineStart;
+            while (lineEnd < end && data.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && data.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            
+            int firstSpace = indexOf(data, (byte) ' ', lineStart, lineEnd);
+            if (firstSpace >= 0 && hasNonSpace(data, firstSpace + 1, lineEnd)) {
+                int passwordEnd = indexOf(data, (byte) ' ', firstSpace + 1, lineEnd);
+                if (passwordEnd < 0) {
+                    passwordEnd = lineEnd;
+                }
+                
+                int longest = Math.max(firstSpace - lineStart, passwordEnd - firstSpace - 1);
+                if (longest > field.length) {
+                    field = new byte[longest];
+                }
+                String username = decode(data, lineStart, firstSpace, field);
+                List<String> pairs = buckets.get(Math.floorMod(username.hashCode(), partitions));
+                pairs.add(username);
+                pairs.add(decode(data, firstSpace + 1, passwordEnd, field));
+            }
+            
+            lineStart = next;
+        }
+        
+        return buckets;
+    }
+    
+    //Decodes the UTF-8 bytes between start and end through a scratch array
+    private static String decode(ByteBuffer data, int start, int end, byte[] field) {
+        int length = end - start;
+        for (int i = 0; i < length; i++) {
+            field[i] = data.get(start + i);
+        }
+        return new String(field, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    //Inserts the pairs of one hash partition from every chunk, in file order
+    private static void insertPartition(List<List<List<String>>> chunks, ConcurrentHashmap userMap,
+        int partition) {
+        for (List<List<String>> chunk : chunks) {
+            List<String> pairs = chunk.get(partition);
+            for (int i = 0; i < pairs.size(); i += 2) {
+                userMap.put(pairs.get(i), new Customer(pairs.get(i), pairs.get(i + 1)));
+            }
+        }
+    }
+    
+    //Returns the first position of a byte between start and end, or -1
+    private static int indexOf(ByteBuffer data, byte value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (data.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    //Checks if any byte between start and end is not a space
+    private static boolean hasNonSpace(ByteBuffer data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (data.get(i) != ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    //Waits for a loading task, passing on its failure
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("user loading interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}